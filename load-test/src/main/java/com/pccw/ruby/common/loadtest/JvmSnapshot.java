@@ -0,0 +1,63 @@
+package com.pccw.ruby.common.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Point-in-time GC and allocation counters of the current JVM.
+ *
+ * <p>Allocated bytes are summed over the live threads whose name starts with a given prefix, so
+ * bytes allocated by threads that died between two snapshots are not counted; the server's pooled
+ * request threads live through a whole run. GC time is the accumulated collection time reported
+ * by the collectors, which matches pause time for stop-the-world young collections.
+ */
+@Getter
+@AllArgsConstructor
+public class JvmSnapshot {
+
+    /** Name prefix of the embedded Tomcat's threads, which serve the requests under test. */
+    public static final String SERVER_THREAD_PREFIX = "http-nio-";
+
+    private final long gcCount;
+
+    private final long gcTimeMillis;
+
+    private final long allocatedBytes;
+
+    /**
+     * Takes a snapshot.
+     *
+     * @param threadNamePrefix the name prefix of the threads whose allocation is counted
+     */
+    public static JvmSnapshot take(String threadNamePrefix) {
+        long gcCount = 0;
+        long gcTimeMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcTimeMillis += Math.max(0, collector.getCollectionTime());
+        }
+
+        long allocatedBytes = 0;
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean =
+                    (com.sun.management.ThreadMXBean) threadMXBean;
+            long[] threadIds =
+                    Arrays.stream(threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds()))
+                            .filter(info -> info != null)
+                            .filter(info -> info.getThreadName().startsWith(threadNamePrefix))
+                            .mapToLong(ThreadInfo::getThreadId)
+                            .toArray();
+            for (long allocated : sunThreadMXBean.getThreadAllocatedBytes(threadIds)) {
+                allocatedBytes += Math.max(0, allocated);
+            }
+        }
+        return new JvmSnapshot(gcCount, gcTimeMillis, allocatedBytes);
+    }
+}
@@ -0,0 +1,166 @@
+package com.pccw.ruby.common.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives HTTP load against one endpoint and records latencies in microseconds.
+ *
+ * <p>The closed-loop mode runs a fixed number of workers, each sending its next request as soon
+ * as the previous one completes. The open-loop mode sends requests at a fixed arrival rate and
+ * measures latency from the intended send time, so that a stalled server is not hidden by
+ * coordinated omission.
+ */
+public class LoadGenerator {
+
+    private final HttpClient httpClient;
+
+    private final ExecutorService executor;
+
+    private final Recorder recorder = new Recorder(3);
+
+    private final LongAdder successes = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public LoadGenerator(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.httpClient =
+                HttpClient.newBuilder()
+                        .executor(executor)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .build();
+    }
+
+    /**
+     * Runs a closed-loop load.
+     *
+     * @param request the request to send
+     * @param concurrency the number of concurrent workers
+     * @param duration how long to run
+     */
+    public void runClosedLoop(HttpRequest request, int concurrency, Duration duration)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker =
+                    new Thread(
+                            () -> {
+                                while (System.nanoTime() < deadline) {
+                                    long start = System.nanoTime();
+                                    try {
+                                        HttpResponse<Void> response =
+                                                httpClient.send(
+                                                        request,
+                                                        HttpResponse.BodyHandlers.discarding());
+                                        record(start, response.statusCode());
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                        return;
+                                    } catch (Exception e) {
+                                        record(start, -1);
+                                    }
+                                }
+                            },
+                            "load-generator-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Runs an open-loop load.
+     *
+     * @param request the request to send
+     * @param ratePerSecond the number of requests sent per second
+     * @param maxOutstanding the number of outstanding requests after which new ones are dropped
+     * @param duration how long to run
+     */
+    public void runOpenLoop(
+            HttpRequest request, int ratePerSecond, int maxOutstanding, Duration duration)
+            throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        long intendedStart = start;
+        while (intendedStart < deadline) {
+            long waitNanos = intendedStart - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            if (outstanding.tryAcquire()) {
+                long sendTime = intendedStart;
+                httpClient
+                        .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete(
+                                (response, error) -> {
+                                    record(sendTime, error == null ? response.statusCode() : -1);
+                                    outstanding.release();
+                                });
+            } else {
+                dropped.increment();
+            }
+            intendedStart += intervalNanos;
+        }
+        outstanding.acquire(maxOutstanding);
+        outstanding.release(maxOutstanding);
+    }
+
+    /** Discards everything recorded so far, typically at the end of the warm-up. */
+    public void reset() {
+        recorder.reset();
+        successes.reset();
+        failures.reset();
+        dropped.reset();
+    }
+
+    /** Returns the latencies recorded since the previous call or reset. */
+    public Histogram getHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void record(long startNanos, int status) {
+        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        // 304 is how conditional requests succeed
+        if ((status >= 200 && status < 300) || status == 304) {
+            successes.increment();
+        } else {
+            failures.increment();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.pccw.ruby.common.loadtest;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.openfeign.EnableFeignClients;
+
+@SpringBootApplication
+@EnableFeignClients
+public class LoadTestApplication {}
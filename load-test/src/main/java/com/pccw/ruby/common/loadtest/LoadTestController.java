@@ -0,0 +1,54 @@
+package com.pccw.ruby.common.loadtest;
+
+import com.pccw.ruby.common.exception.DataNotFoundException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class LoadTestController {
+
+    private final StubClient stubClient;
+
+    public LoadTestController(StubClient stubClient) {
+        this.stubClient = stubClient;
+    }
+
+    @PostMapping("/echo")
+    public Map<String, Object> echo(@RequestBody Map<String, Object> body) {
+        return body;
+    }
+
+    @GetMapping("/items")
+    public List<Map<String, Object>> items(@RequestParam(defaultValue = "1000") int count) {
+        List<Map<String, Object>> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", i);
+            item.put("code", "ITEM-" + i);
+            item.put("description", "Reference data item number " + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    @GetMapping("/items/{id}")
+    public Map<String, Object> item(@PathVariable int id) {
+        throw new DataNotFoundException("Item " + id + " not found");
+    }
+
+    @GetMapping("/upstream")
+    public Map<String, Object> upstream() {
+        return stubClient.getData();
+    }
+}
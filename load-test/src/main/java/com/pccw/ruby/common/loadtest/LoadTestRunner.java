@@ -0,0 +1,233 @@
+package com.pccw.ruby.common.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the load test scenarios and writes the results as JSON.
+ *
+ * <p>Each scenario starts a fresh embedded application with all the common auto-configurations,
+ * pointed at an in-process {@link StubUpstreamServer}, and drives it in closed-loop and/or
+ * open-loop mode. The load generator runs in the same JVM, so GC figures include its own overhead
+ * and are meant to be compared between scenarios rather than read in isolation. Allocation is
+ * only measured on the server's threads: closed-loop workers exit before the second snapshot of a
+ * run, so their allocation could not be counted anyway, and leaving out all client threads keeps
+ * the figures of both modes comparable.
+ *
+ * <pre>
+ * mvn -f load-test/pom.xml package
+ * java -jar load-test/target/common-library-load-test-1.0.0-SNAPSHOT.jar \
+ *     --scenarios=LOGGING_OFF,LOGGING_INFO --mode=closed --concurrency=32 --duration=30
+ * </pre>
+ *
+ * <p>Options: {@code scenarios} (default all), {@code mode} ({@code closed}, {@code open} or
+ * {@code both}), {@code concurrency}, {@code rate} (open-loop requests per second), {@code
+ * warmup} and {@code duration} (seconds), {@code stub-latency-ms}, {@code stub-error-rate} and
+ * {@code output} (default {@code target/load-test-results.json}).
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<Scenario> scenarios =
+                options.containsKey("scenarios")
+                        ? Arrays.stream(options.get("scenarios").split(","))
+                                .map(name -> Scenario.valueOf(name.trim()))
+                                .collect(Collectors.toList())
+                        : Arrays.asList(Scenario.values());
+        String mode = options.getOrDefault("mode", "both");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "1000"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Duration duration =
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        long stubLatencyMillis = Long.parseLong(options.getOrDefault("stub-latency-ms", "20"));
+        double stubErrorRate = Double.parseDouble(options.getOrDefault("stub-error-rate", "0.01"));
+        File output = new File(options.getOrDefault("output", "target/load-test-results.json"));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (StubUpstreamServer stub =
+                new StubUpstreamServer(stubLatencyMillis, stubErrorRate, concurrency * 2)) {
+            for (Scenario scenario : scenarios) {
+                Map<String, Object> properties = new HashMap<>(scenario.getProperties());
+                properties.put("load-test.stub-url", stub.getUrl());
+                ConfigurableApplicationContext context =
+                        new SpringApplicationBuilder(LoadTestApplication.class)
+                                .properties(properties)
+                                .run();
+                try {
+                    int port =
+                            ((ServletWebServerApplicationContext) context)
+                                    .getWebServer()
+                                    .getPort();
+                    HttpRequest request = buildRequest(scenario, port);
+                    if (!"open".equals(mode)) {
+                        results.add(
+                                run(
+                                        scenario,
+                                        "closed",
+                                        request,
+                                        concurrency,
+                                        rate,
+                                        warmup,
+                                        duration));
+                    }
+                    if (!"closed".equals(mode)) {
+                        results.add(
+                                run(
+                                        scenario,
+                                        "open",
+                                        request,
+                                        concurrency,
+                                        rate,
+                                        warmup,
+                                        duration));
+                    }
+                } finally {
+                    context.close();
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("results", results);
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+        log.info("Load test results written to {}", output.getAbsolutePath());
+    }
+
+    private static Map<String, Object> run(
+            Scenario scenario,
+            String mode,
+            HttpRequest request,
+            int concurrency,
+            int rate,
+            Duration warmup,
+            Duration duration)
+            throws InterruptedException {
+        log.info("Running {} in {} loop mode", scenario, mode);
+        LoadGenerator generator = new LoadGenerator(concurrency);
+        try {
+            drive(generator, mode, request, concurrency, rate, warmup);
+            generator.reset();
+
+            JvmSnapshot before = JvmSnapshot.take(JvmSnapshot.SERVER_THREAD_PREFIX);
+            long start = System.nanoTime();
+            drive(generator, mode, request, concurrency, rate, duration);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            JvmSnapshot after = JvmSnapshot.take(JvmSnapshot.SERVER_THREAD_PREFIX);
+
+            Histogram histogram = generator.getHistogram();
+            long requests = generator.getSuccesses() + generator.getFailures();
+            long allocatedBytes = after.getAllocatedBytes() - before.getAllocatedBytes();
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+            latency.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+            latency.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+            latency.put("maxMs", histogram.getMaxValue() / 1000.0);
+            latency.put("meanMs", histogram.getMean() / 1000.0);
+
+            Map<String, Object> gc = new LinkedHashMap<>();
+            gc.put("count", after.getGcCount() - before.getGcCount());
+            gc.put("timeMs", after.getGcTimeMillis() - before.getGcTimeMillis());
+
+            Map<String, Object> allocation = new LinkedHashMap<>();
+            allocation.put("threads", JvmSnapshot.SERVER_THREAD_PREFIX + "*");
+            allocation.put("bytes", allocatedBytes);
+            allocation.put("bytesPerSecond", allocatedBytes / seconds);
+            allocation.put("bytesPerRequest", requests > 0 ? allocatedBytes / requests : 0);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("scenario", scenario.name());
+            result.put("mode", mode);
+            result.put("durationSeconds", seconds);
+            result.put("requests", requests);
+            result.put("successes", generator.getSuccesses());
+            result.put("failures", generator.getFailures());
+            result.put("dropped", generator.getDropped());
+            result.put("throughputPerSecond", requests / seconds);
+            result.put("latency", latency);
+            result.put("gc", gc);
+            result.put("allocation", allocation);
+            return result;
+        } finally {
+            generator.close();
+        }
+    }
+
+    private static void drive(
+            LoadGenerator generator,
+            String mode,
+            HttpRequest request,
+            int concurrency,
+            int rate,
+            Duration duration)
+            throws InterruptedException {
+        if ("open".equals(mode)) {
+            generator.runOpenLoop(request, rate, concurrency * 100, duration);
+        } else {
+            generator.runClosedLoop(request, concurrency, duration);
+        }
+    }
+
+    private static HttpRequest buildRequest(Scenario scenario, int port)
+            throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher body =
+                "POST".equals(scenario.getMethod())
+                        ? HttpRequest.BodyPublishers.ofString(Scenario.ECHO_BODY)
+                        : HttpRequest.BodyPublishers.noBody();
+        HttpRequest.Builder builder =
+                HttpRequest.newBuilder(
+                                URI.create("http://127.0.0.1:" + port + scenario.getPath()))
+                        .timeout(Duration.ofSeconds(10))
+                        .header("Content-Type", "application/json")
+                        .header("Accept-Encoding", "gzip")
+                        .header("User-Agent", "common-library-load-test")
+                        .method(scenario.getMethod(), body);
+        if (scenario.isConditional()) {
+            HttpResponse<Void> response =
+                    HttpClient.newHttpClient()
+                            .send(builder.build(), HttpResponse.BodyHandlers.discarding());
+            response.headers()
+                    .firstValue("ETag")
+                    .ifPresent(eTag -> builder.header("If-None-Match", eTag));
+        }
+        return builder.build();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int equals = arg.indexOf('=');
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+}
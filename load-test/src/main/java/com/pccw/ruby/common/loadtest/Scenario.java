@@ -0,0 +1,89 @@
+package com.pccw.ruby.common.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A load test scenario: one request shape plus the application properties to run it with.
+ *
+ * <p>Each optional feature of the library has its own scenario, to be compared with the
+ * baseline sending the same request: {@link #LOGGING_INFO} for the echo endpoint, {@link
+ * #LARGE_PAYLOAD} for the item list and {@link #UPSTREAM} for the Feign call.
+ */
+@Getter
+@AllArgsConstructor
+public enum Scenario {
+    LOGGING_OFF(
+            "POST",
+            "/api/echo",
+            properties("logging.level.com.pccw.ruby.common.filter", "WARN")),
+    LOGGING_INFO("POST", "/api/echo", Collections.emptyMap()),
+    DIRECT_ENCODING(
+            "POST",
+            "/api/echo",
+            properties("logging.com.pccw.ruby.common.service.direct-encoding", true)),
+    DEBUG_BODIES(
+            "POST", "/api/echo", properties("logging.level.com.pccw.ruby.common", "DEBUG")),
+    LARGE_PAYLOAD("GET", "/api/items?count=5000", Collections.emptyMap()),
+    EXCEPTION_HEAVY("GET", "/api/items/42", Collections.emptyMap()),
+    UPSTREAM("GET", "/api/upstream", Collections.emptyMap()),
+    COMPRESSION(
+            "GET",
+            "/api/items?count=5000",
+            properties("logging.com.pccw.ruby.common.filter.compression.enabled", true)),
+    /** Conditional GETs that match the current ETag, so every response is a 304. */
+    ETAG(
+            "GET",
+            "/api/items?count=5000",
+            properties("logging.com.pccw.ruby.common.filter.etag-urls", "/api/items"),
+            true),
+    LOAD_SHEDDING(
+            "POST",
+            "/api/echo",
+            properties("logging.com.pccw.ruby.common.load-shedding.enabled", true)),
+    SLOW_REQUEST(
+            "GET",
+            "/api/upstream",
+            properties("logging.com.pccw.ruby.common.slow-request.enabled", true)),
+    /** Several route policies, with the echo endpoint matched by its exact path. */
+    POLICIES(
+            "POST",
+            "/api/echo",
+            properties(
+                    "logging.com.pccw.ruby.common.policies[0].pattern", "/actuator/**",
+                    "logging.com.pccw.ruby.common.policies[0].mode", "OFF",
+                    "logging.com.pccw.ruby.common.policies[1].pattern", "/api/items/**",
+                    "logging.com.pccw.ruby.common.policies[1].mode", "METADATA",
+                    "logging.com.pccw.ruby.common.policies[2].pattern", "/api/echo",
+                    "logging.com.pccw.ruby.common.policies[2].mode", "BODY",
+                    "logging.com.pccw.ruby.common.policies[2].max-body-bytes", 256));
+
+    public static final String ECHO_BODY =
+            "{\"id\":1,\"name\":\"load-test\",\"tags\":[\"a\",\"b\",\"c\"],"
+                    + "\"description\":\"A small JSON request body echoed back by the app\"}";
+
+    private final String method;
+
+    private final String path;
+
+    private final Map<String, Object> properties;
+
+    /** Whether the request is sent with the {@code If-None-Match} of a first response. */
+    private final boolean conditional;
+
+    Scenario(String method, String path, Map<String, Object> properties) {
+        this(method, path, properties, false);
+    }
+
+    private static Map<String, Object> properties(Object... keysAndValues) {
+        Map<String, Object> properties = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,13 @@
+package com.pccw.ruby.common.loadtest;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import java.util.Map;
+
+@FeignClient(name = "stub-upstream", url = "${load-test.stub-url}")
+public interface StubClient {
+
+    @GetMapping("/data")
+    Map<String, Object> getData();
+}
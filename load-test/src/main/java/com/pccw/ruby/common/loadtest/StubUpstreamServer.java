@@ -0,0 +1,76 @@
+package com.pccw.ruby.common.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process HTTP upstream answering {@code GET /data} with a fixed JSON body, after a
+ * configurable latency and with a configurable error rate.
+ */
+public class StubUpstreamServer implements AutoCloseable {
+
+    private static final byte[] DATA_BODY =
+            "{\"id\":1,\"code\":\"STUB\",\"description\":\"Stub upstream data\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ERROR_BODY =
+            "{\"status\":500,\"code\":\"000000\",\"description\":\"Unknown Error\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final long latencyMillis;
+
+    private final double errorRate;
+
+    public StubUpstreamServer(long latencyMillis, double errorRate, int threads)
+            throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server =
+                HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/data", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean error = ThreadLocalRandom.current().nextDouble() < errorRate;
+        byte[] body = error ? ERROR_BODY : DATA_BODY;
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(error ? 500 : 200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.pccw.ruby.common.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pccw.ruby.common.monitor.FeignPhaseCapability;
+import feign.Capability;
 import feign.codec.Decoder;
 import feign.codec.Encoder;
 import org.springframework.beans.factory.ObjectFactory;
@@ -39,4 +41,9 @@ public class CommonFeignConfig {
                 () -> new HttpMessageConverters(jacksonConverter);
         return new SpringEncoder(objectFactory);
     }
+
+    @Bean
+    public Capability feignPhaseCapability() {
+        return new FeignPhaseCapability();
+    }
 }
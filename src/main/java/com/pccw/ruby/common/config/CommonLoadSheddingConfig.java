@@ -0,0 +1,62 @@
+package com.pccw.ruby.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pccw.ruby.common.filter.AdaptiveConcurrencyLimiter;
+import com.pccw.ruby.common.filter.CommonLoadSheddingFilter;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(
+        prefix = "logging.com.pccw.ruby.common.load-shedding",
+        name = "enabled",
+        havingValue = "true")
+public class CommonLoadSheddingConfig {
+
+    @Value("${logging.com.pccw.ruby.common.load-shedding.route-groups:}")
+    private List<String> routeGroups;
+
+    @Value("${logging.com.pccw.ruby.common.load-shedding.bypass-urls:/actuator/**}")
+    private List<String> bypassUrls;
+
+    @Value("${logging.com.pccw.ruby.common.load-shedding.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${logging.com.pccw.ruby.common.load-shedding.min-limit:4}")
+    private int minLimit;
+
+    @Value("${logging.com.pccw.ruby.common.load-shedding.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${logging.com.pccw.ruby.common.load-shedding.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CommonLoadSheddingFilter loadSheddingFilter(
+            ObjectMapper objectMapper, ObjectProvider<RequestStatistics> requestStatistics) {
+        Map<String, AdaptiveConcurrencyLimiter> limiters = new LinkedHashMap<>();
+        for (String routeGroup : routeGroups) {
+            limiters.put(
+                    routeGroup, new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit));
+        }
+        CommonLoadSheddingFilter filter =
+                new CommonLoadSheddingFilter(
+                        limiters,
+                        new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit),
+                        bypassUrls,
+                        retryAfterSeconds,
+                        objectMapper);
+        requestStatistics.ifAvailable(filter::setRequestStatistics);
+        return filter;
+    }
+}
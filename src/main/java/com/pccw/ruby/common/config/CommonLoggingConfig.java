@@ -1,13 +1,24 @@
 package com.pccw.ruby.common.config;
 
 import com.pccw.ruby.common.filter.CommonLoggingFilter;
+import com.pccw.ruby.common.filter.ResponseCompressor;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import com.pccw.ruby.common.monitor.SlowRequestWatchdog;
+import com.pccw.ruby.common.service.LoggingPolicyRegistry;
 import com.pccw.ruby.common.service.LoggingService;
+import com.pccw.ruby.common.service.MultipartPartsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Configuration
 public class CommonLoggingConfig {
@@ -15,15 +26,92 @@ public class CommonLoggingConfig {
     @Value("${logging.com.pccw.ruby.common.filter.url-whitelist:/actuator/health}")
     private List<String> urlWhitelist;
 
+    @Value("${logging.com.pccw.ruby.common.filter.etag-urls:}")
+    private List<String> etagUrlPatterns;
+
+    @Value("${logging.com.pccw.ruby.common.filter.multipart-cache-limit:65536}")
+    private int multipartCacheLimit;
+
+    @Value("${logging.com.pccw.ruby.common.service.multipart-max-part-bytes:1024}")
+    private int multipartMaxPartBytes;
+
+    @Value("${logging.com.pccw.ruby.common.service.direct-encoding:false}")
+    private boolean directEncoding;
+
+    @Value("${logging.com.pccw.ruby.common.trace-fields.enabled:false}")
+    private boolean traceFieldsEnabled;
+
+    @Value("${logging.com.pccw.ruby.common.filter.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${logging.com.pccw.ruby.common.filter.compression.min-size:2048}")
+    private int compressionMinSize;
+
+    @Value(
+            "${logging.com.pccw.ruby.common.filter.compression.mime-types:"
+                    + "text/*,application/json,application/*+json,"
+                    + "application/xml,application/*+xml,application/javascript}")
+    private List<String> compressionMimeTypes;
+
+    @Value("${logging.com.pccw.ruby.common.filter.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${logging.com.pccw.ruby.common.filter.compression.pool-size:64}")
+    private int compressionPoolSize;
+
+    @Value("${logging.com.pccw.ruby.common.filter.compression.cache-entries:0}")
+    private int compressionCacheEntries;
+
+    @Value("${logging.com.pccw.ruby.common.filter.compression.cache-max-body-bytes:65536}")
+    private int compressionCacheMaxBodyBytes;
+
     @Bean
     @ConditionalOnMissingBean
-    public CommonLoggingFilter logFilter(LoggingService logService) {
-        return new CommonLoggingFilter(urlWhitelist, logService);
+    public CommonLoggingFilter logFilter(
+            LoggingService logService,
+            ObjectProvider<SlowRequestWatchdog> slowRequestWatchdog,
+            ObjectProvider<RequestStatistics> requestStatistics,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<LoggingPolicyRegistry> loggingPolicyRegistry) {
+        CommonLoggingFilter filter = new CommonLoggingFilter(urlWhitelist, logService);
+        filter.setEtagUrlPatterns(etagUrlPatterns);
+        filter.setMultipartCacheLimit(multipartCacheLimit);
+        slowRequestWatchdog.ifAvailable(filter::setSlowRequestWatchdog);
+        requestStatistics.ifAvailable(filter::setRequestStatistics);
+        loggingPolicyRegistry.ifAvailable(filter::setLoggingPolicyRegistry);
+        if (compressionEnabled) {
+            filter.setResponseCompressor(
+                    new ResponseCompressor(
+                            compressionMinSize,
+                            compressionMimeTypes.stream()
+                                    .map(MediaType::parseMediaType)
+                                    .collect(Collectors.toList()),
+                            compressionLevel,
+                            compressionPoolSize,
+                            compressionCacheEntries,
+                            compressionCacheMaxBodyBytes,
+                            meterRegistry.getIfAvailable()));
+        }
+        return filter;
     }
 
     @Bean
     @ConditionalOnMissingBean
     public LoggingService logService() {
-        return new LoggingService();
+        LoggingService loggingService = new LoggingService(multipartMaxPartBytes);
+        loggingService.setDirectEncoding(directEncoding);
+        loggingService.setTraceFieldsEnabled(traceFieldsEnabled);
+        return loggingService;
+    }
+
+    /** Records multipart parts for logging before the multipart resolver deletes them. */
+    @Bean
+    public WebMvcConfigurer multipartPartsConfigurer(LoggingService logService) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new MultipartPartsInterceptor(logService));
+            }
+        };
     }
 }
@@ -0,0 +1,67 @@
+package com.pccw.ruby.common.config;
+
+import com.pccw.ruby.common.service.LoggingPolicy;
+import com.pccw.ruby.common.service.LoggingPolicyEndpoint;
+import com.pccw.ruby.common.service.LoggingPolicyProperties;
+import com.pccw.ruby.common.service.LoggingPolicyRegistry;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class CommonLoggingPolicyConfig {
+
+    protected static final String POLICIES_PREFIX = "logging.com.pccw.ruby.common.policies";
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LoggingPolicyRegistry loggingPolicyRegistry(Environment environment) {
+        return new LoggingPolicyRegistry(bindPolicies(environment));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public LoggingPolicyEndpoint loggingPolicyEndpoint(
+            LoggingPolicyRegistry loggingPolicyRegistry) {
+        return new LoggingPolicyEndpoint(loggingPolicyRegistry);
+    }
+
+    /** Recompiles the policies when their configuration is refreshed. */
+    @Bean
+    public ApplicationListener<EnvironmentChangeEvent> loggingPolicyRefreshListener(
+            LoggingPolicyRegistry loggingPolicyRegistry, Environment environment) {
+        return event -> {
+            if (event.getKeys().stream().anyMatch(key -> key.startsWith(POLICIES_PREFIX))) {
+                loggingPolicyRegistry.replacePolicies(bindPolicies(environment));
+            }
+        };
+    }
+
+    private static Map<String, LoggingPolicy> bindPolicies(Environment environment) {
+        List<LoggingPolicyProperties> properties =
+                Binder.get(environment)
+                        .bind(POLICIES_PREFIX, Bindable.listOf(LoggingPolicyProperties.class))
+                        .orElse(Collections.emptyList());
+        Map<String, LoggingPolicy> policies = new LinkedHashMap<>();
+        for (LoggingPolicyProperties policy : properties) {
+            if (policy.getPattern() == null) {
+                throw new IllegalArgumentException(
+                        "Logging policy without pattern in " + POLICIES_PREFIX);
+            }
+            policies.put(policy.getPattern(), policy.toPolicy());
+        }
+        return policies;
+    }
+}
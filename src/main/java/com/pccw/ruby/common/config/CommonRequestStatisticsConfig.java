@@ -0,0 +1,35 @@
+package com.pccw.ruby.common.config;
+
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import com.pccw.ruby.common.monitor.RequestStatisticsEndpoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(
+        prefix = "logging.com.pccw.ruby.common.request-statistics",
+        name = "enabled",
+        havingValue = "true")
+public class CommonRequestStatisticsConfig {
+
+    @Value("${logging.com.pccw.ruby.common.request-statistics.max-routes:500}")
+    private int maxRoutes;
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RequestStatistics requestStatistics() {
+        return new RequestStatistics(maxRoutes);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public RequestStatisticsEndpoint requestStatisticsEndpoint(
+            RequestStatistics requestStatistics) {
+        return new RequestStatisticsEndpoint(requestStatistics);
+    }
+}
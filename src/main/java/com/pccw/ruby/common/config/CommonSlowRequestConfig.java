@@ -0,0 +1,46 @@
+package com.pccw.ruby.common.config;
+
+import com.pccw.ruby.common.monitor.ControllerPhaseInterceptor;
+import com.pccw.ruby.common.monitor.SlowRequestWatchdog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(
+        prefix = "logging.com.pccw.ruby.common.slow-request",
+        name = "enabled",
+        havingValue = "true")
+public class CommonSlowRequestConfig implements WebMvcConfigurer {
+
+    @Value("${logging.com.pccw.ruby.common.slow-request.threshold-millis:1000}")
+    private long thresholdMillis;
+
+    @Value("${logging.com.pccw.ruby.common.slow-request.sample-interval-millis:200}")
+    private long sampleIntervalMillis;
+
+    @Value("${logging.com.pccw.ruby.common.slow-request.max-samples:3}")
+    private int maxSamples;
+
+    @Value("${logging.com.pccw.ruby.common.slow-request.tick-millis:10}")
+    private long tickMillis;
+
+    @Value("${logging.com.pccw.ruby.common.slow-request.wheel-size:512}")
+    private int wheelSize;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public SlowRequestWatchdog slowRequestWatchdog() {
+        return new SlowRequestWatchdog(
+                thresholdMillis, sampleIntervalMillis, maxSamples, tickMillis, wheelSize);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ControllerPhaseInterceptor());
+    }
+}
@@ -0,0 +1,38 @@
+package com.pccw.ruby.common.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import javax.validation.Validator;
+
+/**
+ * Replaces Boot's default bean validator with one that stops at the first constraint violation.
+ *
+ * <p>Runs before {@link ValidationAutoConfiguration}, whose {@code defaultValidator} backs off
+ * when a validator is already defined, and backs off itself when the service defines its own.
+ */
+@Configuration
+@AutoConfigureBefore(ValidationAutoConfiguration.class)
+@ConditionalOnProperty(
+        prefix = "logging.com.pccw.ruby.common.validation",
+        name = "fail-fast",
+        havingValue = "true")
+public class CommonValidationConfig {
+
+    /**
+     * Bean validator that stops at the first constraint violation, so oversized invalid payloads
+     * are rejected without validating every field.
+     */
+    @Bean
+    @ConditionalOnMissingBean(Validator.class)
+    public LocalValidatorFactoryBean defaultValidator() {
+        LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+        validator.getValidationPropertyMap().put("hibernate.validator.fail_fast", "true");
+        return validator;
+    }
+}
@@ -0,0 +1,40 @@
+package com.pccw.ruby.common.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns Sleuth's MDC correlation off by default when the library writes trace fields itself.
+ *
+ * <p>The defaults are added with the lowest precedence, so a service can still re-enable MDC
+ * correlation explicitly, e.g. for its own log statements, in which case the library's events
+ * take the IDs from the MDC as well.
+ */
+public class TraceFieldsEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    public static final String TRACE_FIELDS_ENABLED =
+            "logging.com.pccw.ruby.common.trace-fields.enabled";
+
+    private static final String PROPERTY_SOURCE_NAME = "commonTraceFieldsDefaults";
+
+    @Override
+    public void postProcessEnvironment(
+            ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty(TRACE_FIELDS_ENABLED, Boolean.class, false)) {
+            return;
+        }
+        Map<String, Object> defaults = new HashMap<>();
+        // Sleuth 3.x
+        defaults.put("spring.sleuth.baggage.correlation-enabled", false);
+        // Sleuth 2.x
+        defaults.put("spring.sleuth.log.slf4j.enabled", false);
+        environment
+                .getPropertySources()
+                .addLast(new MapPropertySource(PROPERTY_SOURCE_NAME, defaults));
+    }
+}
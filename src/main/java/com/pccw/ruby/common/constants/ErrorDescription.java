@@ -4,4 +4,6 @@ public class ErrorDescription {
     public static final String UNKNOWN_ERROR = "Unknown Error";
 
     public static final String VALIDATION_ERROR = "Validation Failed";
+
+    public static final String SERVICE_UNAVAILABLE = "Service Unavailable";
 }
@@ -11,7 +11,8 @@ public enum ErrorCode {
     ILLEGAL_ARGUMENT("000002"),
     DATA_NOT_FOUND("000003"),
     DATA_DUPLICATION("000004"),
-    FEIGN_ERROR("000005");
+    FEIGN_ERROR("000005"),
+    SERVICE_UNAVAILABLE("000006");
 
     private final String code;
 }
@@ -0,0 +1,12 @@
+package com.pccw.ruby.common.enums;
+
+public enum LoggingMode {
+    /** Nothing is logged. */
+    OFF,
+    /** Method, path and, for responses, status and duration. */
+    METADATA,
+    /** Metadata plus whitelisted headers and request parameters. */
+    HEADERS,
+    /** Headers plus request and response bodies, logged at INFO. */
+    BODY
+}
@@ -8,9 +8,12 @@ import com.pccw.ruby.common.exception.DataNotFoundException;
 import com.pccw.ruby.common.exception.response.ExceptionResponse;
 import com.pccw.ruby.common.exception.response.ValidationExceptionObject;
 import com.pccw.ruby.common.exception.response.ValidationExceptionResponse;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import com.pccw.ruby.common.service.TraceFields;
 import feign.FeignException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
@@ -18,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -26,6 +30,7 @@ import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.List;
 import java.util.stream.Collectors;
 
 @ControllerAdvice
@@ -36,6 +41,15 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
 
     @Autowired protected ObjectMapper objectMapper;
 
+    @Autowired(required = false)
+    protected RequestStatistics requestStatistics;
+
+    @Value("${logging.com.pccw.ruby.common.validation.max-field-errors:100}")
+    protected int maxFieldErrors;
+
+    @Value("${logging.com.pccw.ruby.common.trace-fields.enabled:false}")
+    protected boolean traceFieldsEnabled;
+
     /**
      * Provides handling for common exceptions.
      *
@@ -143,7 +157,10 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
             HttpStatus status,
             WebRequest request) {
         log.error(
-                "IllegalArgumentException: {}, {}", ex.getMessage(), request.getDescription(false));
+                "IllegalArgumentException: {}, {}",
+                ex.getMessage(),
+                request.getDescription(false),
+                currentTraceFields());
 
         return handleCommonExceptionInternal(
                 ErrorCode.ILLEGAL_ARGUMENT, ex.getMessage(), headers, status, request);
@@ -162,7 +179,11 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
      */
     protected ResponseEntity<Object> handleDataNotFoundException(
             DataNotFoundException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
-        log.error("DataNotFoundException: {}, {}", ex.getMessage(), request.getDescription(false));
+        log.error(
+                "DataNotFoundException: {}, {}",
+                ex.getMessage(),
+                request.getDescription(false),
+                currentTraceFields());
 
         return handleCommonExceptionInternal(
                 ErrorCode.DATA_NOT_FOUND, ex.getMessage(), headers, status, request);
@@ -185,7 +206,10 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
             HttpStatus status,
             WebRequest request) {
         log.error(
-                "DataDuplicationException: {}, {}", ex.getMessage(), request.getDescription(false));
+                "DataDuplicationException: {}, {}",
+                ex.getMessage(),
+                request.getDescription(false),
+                currentTraceFields());
 
         return handleCommonExceptionInternal(
                 ErrorCode.DATA_DUPLICATION, ex.getMessage(), headers, status, request);
@@ -202,7 +226,11 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
      */
     protected ResponseEntity<Object> handleFeignException(
             FeignException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
-        log.error("FeignException: {}, {}", ex.getMessage(), request.getDescription(false));
+        log.error(
+                "FeignException: {}, {}",
+                ex.getMessage(),
+                request.getDescription(false),
+                currentTraceFields());
         ExceptionResponse exceptionResponseDTO;
 
         try {
@@ -210,16 +238,19 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
                     objectMapper.readValue(ex.contentUTF8(), ExceptionResponse.class);
             exceptionResponseDTO.setStatus(status.value());
             exceptionResponseDTO.setCode(ErrorCode.FEIGN_ERROR.getCode());
+            recordError(ErrorCode.FEIGN_ERROR);
         } catch (Exception e) {
             log.error(
                     "Cannot read error response: {}, {}",
                     e.getMessage(),
-                    request.getDescription(false));
+                    request.getDescription(false),
+                    currentTraceFields());
             exceptionResponseDTO =
                     new ExceptionResponse(
                             HttpStatus.INTERNAL_SERVER_ERROR.value(),
                             ErrorCode.UNKNOWN_ERROR.getCode(),
                             ErrorDescription.UNKNOWN_ERROR);
+            recordError(ErrorCode.UNKNOWN_ERROR);
             return new ResponseEntity<>(
                     exceptionResponseDTO, headers, HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -239,7 +270,12 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
      */
     protected ResponseEntity<Object> handleOtherExceptions(
             Exception ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
-        log.error("Exception: {}, {}", ex.getMessage(), request.getDescription(false), ex);
+        log.error(
+                "Exception: {}, {}",
+                ex.getMessage(),
+                request.getDescription(false),
+                currentTraceFields(),
+                ex);
 
         return handleCommonExceptionInternal(
                 ErrorCode.UNKNOWN_ERROR, ErrorDescription.UNKNOWN_ERROR, headers, status, request);
@@ -260,12 +296,14 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
         log.error(
                 "Standard Spring MVC exception: {}, {}",
                 ex.getMessage(),
-                request.getDescription(false));
+                request.getDescription(false),
+                currentTraceFields());
         ExceptionResponse exceptionResponseDTO =
                 new ExceptionResponse(
                         status.value(),
                         ErrorCode.UNKNOWN_ERROR.getCode(),
                         ErrorDescription.UNKNOWN_ERROR);
+        recordError(ErrorCode.UNKNOWN_ERROR);
 
         return new ResponseEntity<>(exceptionResponseDTO, headers, status);
     }
@@ -273,6 +311,10 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
     /**
      * A single place to customize the response body of validation exception types.
      *
+     * <p>At most {@link #maxFieldErrors} field errors are returned, the number of omitted ones
+     * being reported as the overflow count. Only a summary is logged, so rejected values of large
+     * payloads are never rendered.
+     *
      * @param bindingResult the bindingResult
      * @param headers the headers for the response
      * @param status the response status
@@ -285,20 +327,44 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
             HttpHeaders headers,
             HttpStatus status,
             WebRequest request) {
-        log.error(
-                "Field Validation Error, {}, {}",
-                bindingResult.toString(),
-                request.getDescription(false));
+        recordError(errorCode);
         ValidationExceptionResponse validationExceptionResponseDTO =
                 new ValidationExceptionResponse(status.value(), errorCode.getCode(), description);
-        if (null != bindingResult) {
-            validationExceptionResponseDTO.setErrors(
-                    bindingResult.getFieldErrors().stream()
-                            .map(
-                                    error ->
-                                            new ValidationExceptionObject(
-                                                    error.getField(), error.getDefaultMessage()))
-                            .collect(Collectors.toList()));
+        if (null == bindingResult) {
+            log.error(
+                    "Field Validation Error, {}",
+                    request.getDescription(false),
+                    currentTraceFields());
+            return new ResponseEntity<>(validationExceptionResponseDTO, status);
+        }
+
+        int fieldErrorCount = bindingResult.getFieldErrorCount();
+        int limit = Math.min(fieldErrorCount, Math.max(0, maxFieldErrors));
+        List<FieldError> returnedErrors = bindingResult.getFieldErrors().subList(0, limit);
+        log.error(
+                "Field Validation Error, {} field error(s) on {}, {}",
+                fieldErrorCount,
+                bindingResult.getObjectName(),
+                request.getDescription(false),
+                currentTraceFields());
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Field Validation Error fields, {}",
+                    returnedErrors.stream()
+                            .map(error -> error.getField() + ":" + error.getCode())
+                            .collect(Collectors.joining(", ")),
+                    currentTraceFields());
+        }
+
+        validationExceptionResponseDTO.setErrors(
+                returnedErrors.stream()
+                        .map(
+                                error ->
+                                        new ValidationExceptionObject(
+                                                error.getField(), error.getDefaultMessage()))
+                        .collect(Collectors.toList()));
+        if (fieldErrorCount > limit) {
+            validationExceptionResponseDTO.setOverflowCount(fieldErrorCount - limit);
         }
 
         return new ResponseEntity<>(validationExceptionResponseDTO, status);
@@ -318,9 +384,28 @@ public class CommonResponseEntityExceptionHandler extends ResponseEntityExceptio
             HttpHeaders headers,
             HttpStatus status,
             WebRequest request) {
+        recordError(errorCode);
         ExceptionResponse exceptionResponseDTO =
                 new ExceptionResponse(status.value(), errorCode.getCode(), description);
 
         return new ResponseEntity<>(exceptionResponseDTO, headers, status);
     }
+
+    /**
+     * Counts a handled error in the live request statistics, if enabled.
+     *
+     * @param errorCode the error code of the response
+     */
+    protected void recordError(ErrorCode errorCode) {
+        if (requestStatistics != null) {
+            requestStatistics.recordError(errorCode);
+        }
+    }
+
+    /**
+     * Returns the trace fields to attach to a log event, empty unless trace fields are enabled.
+     */
+    protected TraceFields currentTraceFields() {
+        return traceFieldsEnabled ? TraceFields.current() : TraceFields.none();
+    }
 }
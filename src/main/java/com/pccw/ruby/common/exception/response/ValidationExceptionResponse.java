@@ -1,5 +1,6 @@
 package com.pccw.ruby.common.exception.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +11,10 @@ import java.util.List;
 public class ValidationExceptionResponse extends ExceptionResponse {
     private List<ValidationExceptionObject> errors;
 
+    /** Number of field errors left out of {@link #errors}, present only when errors were capped. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer overflowCount;
+
     public ValidationExceptionResponse(int status, String code, String description) {
         super(status, code, description);
     }
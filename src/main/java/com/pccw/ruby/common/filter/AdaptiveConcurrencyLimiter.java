@@ -0,0 +1,140 @@
+package com.pccw.ruby.common.filter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that adapts to measured latency.
+ *
+ * <p>Latency samples are collected in windows. At the end of each window, the window's average
+ * latency is compared with a long-term moving average of previous windows: the limit shrinks
+ * when the window is markedly slower than the long-term average, which is what happens once
+ * requests start to queue up, and otherwise grows by a small allowance for queueing. Since both
+ * averages are taken over the same mix of requests, a steady spread between fast and slow
+ * requests does not reduce the limit. Windows in which the in-flight requests stayed well below
+ * the limit say nothing about the limit itself, and leave it unchanged. Acquiring and releasing a
+ * permit are lock-free.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int WINDOW_SIZE = 100;
+
+    /** Number of windows over which the long-term average latency is smoothed. */
+    private static final int LONG_WINDOWS = 20;
+
+    /** Ratio by which a window may be slower than the long-term average before shrinking. */
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+    private final AtomicLong windowRttSum = new AtomicLong();
+
+    private final AtomicLong windowCount = new AtomicLong();
+
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private volatile int limit;
+
+    /** Unrounded limit, so that small limits can still grow. Guarded by {@link #updating}. */
+    private double estimatedLimit;
+
+    /** Guarded by {@link #updating}. */
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(
+                    "Invalid concurrency limits, min: " + minLimit + ", max: " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+    }
+
+    /**
+     * Tries to take a permit for a new request.
+     *
+     * @return {@code true} if the request may proceed, in which case {@link #release} must be
+     *     called when it completes
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (current + 1 > windowMaxInFlight.get()) {
+                    windowMaxInFlight.accumulateAndGet(current + 1, Math::max);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit and records the latency of the request that held it.
+     *
+     * @param rttNanos the request latency in nanoseconds
+     */
+    public void release(long rttNanos) {
+        inFlight.decrementAndGet();
+        windowRttSum.addAndGet(rttNanos);
+        if (windowCount.incrementAndGet() >= WINDOW_SIZE && updating.compareAndSet(false, true)) {
+            try {
+                updateLimit();
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void updateLimit() {
+        long count = windowCount.getAndSet(0);
+        long sum = windowRttSum.getAndSet(0);
+        int maxInFlight = windowMaxInFlight.getAndSet(inFlight.get());
+        if (count == 0) {
+            return;
+        }
+        double shortRtt = (double) sum / count;
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+            return;
+        }
+        longRttNanos += (shortRtt - longRttNanos) / LONG_WINDOWS;
+        // once latency has dropped well below the long-term average, such as after a burst of
+        // queueing, let the average catch up faster so that the limit can recover
+        if (longRttNanos > 2 * shortRtt) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = estimatedLimit;
+        if (maxInFlight < limit / 2) {
+            return;
+        }
+        double gradient =
+                Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double smoothed = current * (1 - SMOOTHING) + target * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+        limit = (int) Math.round(estimatedLimit);
+    }
+}
@@ -0,0 +1,184 @@
+package com.pccw.ruby.common.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pccw.ruby.common.constants.ErrorDescription;
+import com.pccw.ruby.common.enums.ErrorCode;
+import com.pccw.ruby.common.exception.response.ExceptionResponse;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+public class CommonLoadSheddingFilter extends OncePerRequestFilter implements Ordered {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    protected static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    /** Limiters keyed by route group pattern, in matching order. */
+    protected Map<String, AdaptiveConcurrencyLimiter> limiters;
+
+    protected AdaptiveConcurrencyLimiter defaultLimiter;
+
+    protected List<String> bypassPatterns;
+
+    protected int retryAfterSeconds;
+
+    protected byte[] rejectionBody;
+
+    /** Optional live request statistics counting the rejections, disabled when {@code null}. */
+    @Setter protected RequestStatistics requestStatistics;
+
+    public CommonLoadSheddingFilter(
+            Map<String, AdaptiveConcurrencyLimiter> limiters,
+            AdaptiveConcurrencyLimiter defaultLimiter,
+            List<String> bypassPatterns,
+            int retryAfterSeconds,
+            ObjectMapper objectMapper) {
+        this.limiters = limiters;
+        this.defaultLimiter = defaultLimiter;
+        this.bypassPatterns = bypassPatterns;
+        this.retryAfterSeconds = retryAfterSeconds;
+        try {
+            this.rejectionBody =
+                    objectMapper.writeValueAsBytes(
+                            new ExceptionResponse(
+                                    HttpStatus.SERVICE_UNAVAILABLE.value(),
+                                    ErrorCode.SERVICE_UNAVAILABLE.getCode(),
+                                    ErrorDescription.SERVICE_UNAVAILABLE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize load shedding response", e);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+
+        if (isBypassed(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = resolveLimiter(path);
+        if (!limiter.tryAcquire()) {
+            reject(request, response, limiter);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // the request is still in flight until the async processing completes
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(limiter, start));
+            } else {
+                limiter.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    protected boolean isBypassed(String path) {
+        return bypassPatterns.stream().anyMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
+    protected AdaptiveConcurrencyLimiter resolveLimiter(String path) {
+        for (Map.Entry<String, AdaptiveConcurrencyLimiter> entry : limiters.entrySet()) {
+            if (PATH_MATCHER.match(entry.getKey(), path)) {
+                return entry.getValue();
+            }
+        }
+        return defaultLimiter;
+    }
+
+    protected void reject(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            AdaptiveConcurrencyLimiter limiter)
+            throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Request rejected by load shedding: {} {}, limit {}",
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    limiter.getLimit());
+        }
+        if (requestStatistics != null) {
+            requestStatistics.recordRejection();
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(rejectionBody.length);
+        response.getOutputStream().write(rejectionBody);
+    }
+
+    /** Returns the permit of an async request once, whichever way the request ends. */
+    protected static class ReleasingAsyncListener implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimiter limiter;
+
+        private final long startNanos;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        protected ReleasingAsyncListener(AdaptiveConcurrencyLimiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // a new async cycle replaces this listener registration, re-add it to keep tracking
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
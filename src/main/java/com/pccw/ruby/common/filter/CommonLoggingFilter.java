@@ -1,8 +1,24 @@
 package com.pccw.ruby.common.filter;
 
+import com.pccw.ruby.common.enums.LoggingMode;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import com.pccw.ruby.common.monitor.RequestTrace;
+import com.pccw.ruby.common.monitor.RequestTraceHolder;
+import com.pccw.ruby.common.monitor.SlowRequestWatchdog;
+import com.pccw.ruby.common.service.LoggingPolicy;
+import com.pccw.ruby.common.service.LoggingPolicyRegistry;
 import com.pccw.ruby.common.service.LoggingService;
+import com.pccw.ruby.common.util.HashUtils;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
@@ -11,15 +27,48 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 @Slf4j
 public class CommonLoggingFilter extends OncePerRequestFilter {
 
+    protected static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    protected static final int DEFAULT_MULTIPART_CACHE_LIMIT = LoggingPolicy.DEFAULT_MAX_BODY_BYTES;
+
+    /** Request attribute holding the {@link LoggingPolicy} applied to the current request. */
+    public static final String LOGGING_POLICY_ATTRIBUTE =
+            CommonLoggingFilter.class.getName() + ".LOGGING_POLICY";
+
     protected List<String> urlWhitelist;
 
     protected LoggingService loggingService;
 
+    /** Route patterns whose GET responses are given a weak ETag and may be answered with 304. */
+    @Setter protected List<String> etagUrlPatterns = Collections.emptyList();
+
+    /**
+     * Maximum number of bytes of a multipart request body cached for logging. Part headers and
+     * text fields usually come first, and the container parses the parts from the raw stream
+     * anyway, so uploads are not buffered whole.
+     */
+    @Setter protected int multipartCacheLimit = DEFAULT_MULTIPART_CACHE_LIMIT;
+
+    /** Optional watchdog reporting slow requests, disabled when {@code null}. */
+    @Setter protected SlowRequestWatchdog slowRequestWatchdog;
+
+    /** Optional live request statistics, disabled when {@code null}. */
+    @Setter protected RequestStatistics requestStatistics;
+
+    /** Optional compression of buffered response bodies, disabled when {@code null}. */
+    @Setter protected ResponseCompressor responseCompressor;
+
+    /** Optional per-route logging policies, {@link LoggingPolicy#DEFAULT} applies when absent. */
+    @Setter protected LoggingPolicyRegistry loggingPolicyRegistry;
+
     public CommonLoggingFilter(List<String> urlWhitelist, LoggingService loggingService) {
         this.urlWhitelist = urlWhitelist;
         this.loggingService = loggingService;
@@ -33,8 +82,18 @@ public class CommonLoggingFilter extends OncePerRequestFilter {
 
         if (isInWhitelist(path) || isAsyncDispatch(request)) {
             filterChain.doFilter(request, response);
+            return;
+        }
+
+        LoggingPolicy policy = resolveEffectivePolicy(request);
+        if (policy.getMode() == LoggingMode.OFF && !isBufferingRequired(request)) {
+            doFilterUnwrapped(request, response, filterChain);
         } else {
-            doFilterWrapped(wrapRequest(request), wrapResponse(response), filterChain);
+            request.setAttribute(LOGGING_POLICY_ATTRIBUTE, policy);
+            doFilterWrapped(
+                    wrapRequest(request, resolveRequestCacheLimit(request, policy)),
+                    wrapResponse(response),
+                    filterChain);
         }
     }
 
@@ -42,36 +101,282 @@ public class CommonLoggingFilter extends OncePerRequestFilter {
         return urlWhitelist.contains(path);
     }
 
+    /**
+     * Resolves the policy applied to the current request, {@link LoggingPolicy#OFF} if it is not
+     * logged at all, for instance because it has not been sampled.
+     */
+    protected LoggingPolicy resolveEffectivePolicy(HttpServletRequest request) {
+        if (!log.isInfoEnabled()) {
+            return LoggingPolicy.OFF;
+        }
+        LoggingPolicy policy = resolveLoggingPolicy(request);
+        return policy.sample() ? policy : LoggingPolicy.OFF;
+    }
+
+    /** Whether the response must be buffered regardless of logging, for ETags or compression. */
+    protected boolean isBufferingRequired(HttpServletRequest request) {
+        return responseCompressor != null || isETagRoute(request);
+    }
+
+    /**
+     * Resolves the maximum number of request body bytes to cache, which is only what the policy
+     * may log.
+     *
+     * @return the limit, or {@code -1} to cache the whole body
+     */
+    protected int resolveRequestCacheLimit(HttpServletRequest request, LoggingPolicy policy) {
+        if (!loggingService.isBodyLogged(policy)) {
+            return 0;
+        }
+        int limit = policy.getMaxBodyBytes();
+        if (StringUtils.startsWithIgnoreCase(
+                request.getContentType(), MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            return limit >= 0 ? Math.min(limit, multipartCacheLimit) : multipartCacheLimit;
+        }
+        return limit;
+    }
+
+    /** Runs the chain without buffering, for requests that are not logged. */
+    protected void doFilterUnwrapped(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTrace trace = startTrace(request);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            finishTrace(trace, request, response);
+        }
+    }
+
     protected void doFilterWrapped(
             ContentCachingRequestWrapper request,
             ContentCachingResponseWrapper response,
             FilterChain filterChain)
             throws ServletException, IOException {
+        doFilterWrapped(request, response, filterChain, getLoggingPolicy(request));
+    }
+
+    protected void doFilterWrapped(
+            ContentCachingRequestWrapper request,
+            ContentCachingResponseWrapper response,
+            FilterChain filterChain,
+            LoggingPolicy policy)
+            throws ServletException, IOException {
+        request.setAttribute(LOGGING_POLICY_ATTRIBUTE, policy);
+        if (loggingService.isDurationLogged(policy)) {
+            request.setAttribute(LoggingService.START_NANOS_ATTRIBUTE, System.nanoTime());
+        }
+        RequestTrace trace = startTrace(request);
+        trackCapturedBytes(request, response, trace);
         try {
             beforeRequest(request, response);
             filterChain.doFilter(request, response);
+            applyETag(request, response);
         } finally {
-            afterRequest(request, response);
+            try {
+                afterRequest(request, response);
+                if (trace != null) {
+                    trace.markBodyCopyStart();
+                }
+                copyBodyToResponse(request, response);
+            } finally {
+                finishTrace(trace, request, response);
+            }
+        }
+    }
+
+    protected void copyBodyToResponse(
+            ContentCachingRequestWrapper request, ContentCachingResponseWrapper response)
+            throws IOException {
+        if (responseCompressor == null || !responseCompressor.compress(request, response)) {
             response.copyBodyToResponse();
         }
     }
 
+    /** Accounts for the bodies buffered by the wrappers in the statistics as they are buffered. */
+    protected void trackCapturedBytes(
+            ContentCachingRequestWrapper request,
+            ContentCachingResponseWrapper response,
+            RequestTrace trace) {
+        if (trace == null || requestStatistics == null) {
+            return;
+        }
+        LongConsumer listener = deltaBytes -> requestStatistics.capture(trace, deltaBytes);
+        if (request instanceof CountingRequestWrapper) {
+            ((CountingRequestWrapper) request).setCaptureListener(listener);
+        }
+        if (response instanceof CountingResponseWrapper) {
+            ((CountingResponseWrapper) response).setCaptureListener(listener);
+        }
+    }
+
+    protected RequestTrace startTrace(HttpServletRequest request) {
+        if (slowRequestWatchdog == null && requestStatistics == null) {
+            return null;
+        }
+        RequestTrace trace =
+                new RequestTrace(
+                        request.getMethod(), request.getRequestURI(), Thread.currentThread());
+        RequestTraceHolder.set(trace);
+        if (slowRequestWatchdog != null) {
+            slowRequestWatchdog.watch(trace);
+        }
+        if (requestStatistics != null) {
+            requestStatistics.start(trace);
+        }
+        return trace;
+    }
+
+    protected void finishTrace(
+            RequestTrace trace, HttpServletRequest request, HttpServletResponse response) {
+        if (trace == null) {
+            return;
+        }
+        RequestTraceHolder.clear();
+        trace.markEnd();
+        if (slowRequestWatchdog != null) {
+            slowRequestWatchdog.complete(trace, response.getStatus());
+        }
+        if (requestStatistics != null) {
+            requestStatistics.complete(trace, resolveRoute(request));
+        }
+    }
+
+    /**
+     * Resolves the route key used for statistics, based on the matched handler pattern so that
+     * path variables do not create one route per value.
+     */
+    protected String resolveRoute(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "UNMAPPED");
+    }
+
     protected void beforeRequest(
             ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {}
 
     protected void afterRequest(
             ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
-        if (log.isInfoEnabled()) {
-            loggingService.logRequest(request);
-            loggingService.logResponse(request, response);
+        afterRequest(request, response, getLoggingPolicy(request));
+    }
+
+    protected void afterRequest(
+            ContentCachingRequestWrapper request,
+            ContentCachingResponseWrapper response,
+            LoggingPolicy policy) {
+        if (policy.getMode() != LoggingMode.OFF) {
+            loggingService.logRequest(request, policy);
+            loggingService.logResponse(request, response, policy);
+        }
+    }
+
+    /**
+     * Returns the policy resolved for the current request by {@link #doFilterInternal}, or
+     * resolves it if the wrapped chain has been entered some other way.
+     */
+    protected LoggingPolicy getLoggingPolicy(HttpServletRequest request) {
+        Object policy = request.getAttribute(LOGGING_POLICY_ATTRIBUTE);
+        return policy instanceof LoggingPolicy
+                ? (LoggingPolicy) policy
+                : resolveEffectivePolicy(request);
+    }
+
+    protected LoggingPolicy resolveLoggingPolicy(HttpServletRequest request) {
+        if (loggingPolicyRegistry == null) {
+            return LoggingPolicy.DEFAULT;
         }
+        return loggingPolicyRegistry.resolve(request.getRequestURI());
+    }
+
+    /**
+     * Sets a weak ETag computed from the buffered response body, and turns the response into a
+     * {@code 304 Not Modified} without body if the request's {@code If-None-Match} matches it.
+     *
+     * @param request the current request
+     * @param response the current response, whose body has not been copied yet
+     */
+    protected void applyETag(
+            ContentCachingRequestWrapper request, ContentCachingResponseWrapper response)
+            throws IOException {
+        if (!isETagEligible(request, response)) {
+            return;
+        }
+        long hash;
+        try (InputStream content = response.getContentInputStream()) {
+            hash = HashUtils.fnv1a64(content);
+        }
+        String eTag = "W/\"" + Long.toHexString(hash) + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+
+        if (matchesIfNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.resetBuffer();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+    }
+
+    protected boolean isETagEligible(
+            ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
+        if (!isETagRoute(request)) {
+            return false;
+        }
+        if (response.getStatus() != HttpServletResponse.SC_OK
+                || response.getContentSize() == 0
+                || response.containsHeader(HttpHeaders.ETAG)) {
+            return false;
+        }
+        String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        return cacheControl == null || !cacheControl.contains("no-store");
+    }
+
+    /**
+     * Whether the request is a GET on a route configured for ETags. HEAD requests are not, since
+     * their body is discarded before it reaches the buffer, so there is nothing to hash.
+     */
+    protected boolean isETagRoute(HttpServletRequest request) {
+        if (etagUrlPatterns.isEmpty() || !HttpMethod.GET.matches(request.getMethod())) {
+            return false;
+        }
+        String path = request.getRequestURI();
+        return etagUrlPatterns.stream().anyMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
+    /** Whether an {@code If-None-Match} header matches the given ETag, using weak comparison. */
+    protected static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        String opaqueTag = stripWeakPrefix(eTag);
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || opaqueTag.equals(stripWeakPrefix(trimmed))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
     }
 
     protected static ContentCachingRequestWrapper wrapRequest(HttpServletRequest request) {
         if (request instanceof ContentCachingRequestWrapper) {
             return (ContentCachingRequestWrapper) request;
         } else {
-            return new ContentCachingRequestWrapper(request);
+            return new CountingRequestWrapper(request);
+        }
+    }
+
+    protected static ContentCachingRequestWrapper wrapRequest(
+            HttpServletRequest request, int cacheLimit) {
+        if (request instanceof ContentCachingRequestWrapper) {
+            return (ContentCachingRequestWrapper) request;
+        }
+        // the limited wrapper preallocates its limit, the other one the declared length
+        int contentLength = request.getContentLength();
+        if (cacheLimit >= 0 && (contentLength < 0 || contentLength > cacheLimit)) {
+            return new CountingRequestWrapper(request, cacheLimit);
+        } else {
+            return new CountingRequestWrapper(request);
         }
     }
 
@@ -79,7 +384,7 @@ public class CommonLoggingFilter extends OncePerRequestFilter {
         if (response instanceof ContentCachingResponseWrapper) {
             return (ContentCachingResponseWrapper) response;
         } else {
-            return new ContentCachingResponseWrapper(response);
+            return new CountingResponseWrapper(response);
         }
     }
 }
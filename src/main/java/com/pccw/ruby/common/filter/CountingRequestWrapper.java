@@ -0,0 +1,114 @@
+package com.pccw.ruby.common.filter;
+
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+/**
+ * {@link ContentCachingRequestWrapper} keeping track of the number of body bytes it has cached,
+ * which the base class only exposes by copying its cache.
+ *
+ * <p>Only bytes read through the input stream are counted: form parameters that the base class
+ * writes back into its cache when they are read through {@code getParameter} are not. An optional
+ * listener is told about every byte added to the cache as it is read, so that bodies can be
+ * accounted for while the handler is still running.
+ */
+public class CountingRequestWrapper extends ContentCachingRequestWrapper {
+
+    private final int cacheLimit;
+
+    private ServletInputStream inputStream;
+
+    private long readBytes;
+
+    private LongConsumer captureListener;
+
+    public CountingRequestWrapper(HttpServletRequest request) {
+        super(request);
+        this.cacheLimit = -1;
+    }
+
+    public CountingRequestWrapper(HttpServletRequest request, int cacheLimit) {
+        super(request, cacheLimit);
+        this.cacheLimit = cacheLimit;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new CountingInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    /**
+     * Sets the listener told about the number of bytes added to the cache by each read.
+     *
+     * @param captureListener the listener, or {@code null} for none
+     */
+    public void setCaptureListener(LongConsumer captureListener) {
+        this.captureListener = captureListener;
+    }
+
+    /** Returns the number of body bytes cached so far. */
+    public long getCachedBytes() {
+        return cacheLimit >= 0 ? Math.min(readBytes, cacheLimit) : readBytes;
+    }
+
+    private void count(int read) {
+        long cachedBefore = getCachedBytes();
+        readBytes += read;
+        if (captureListener != null) {
+            long cached = getCachedBytes() - cachedBefore;
+            if (cached > 0) {
+                captureListener.accept(cached);
+            }
+        }
+    }
+
+    private final class CountingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        private CountingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = delegate.read();
+            if (read != -1) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
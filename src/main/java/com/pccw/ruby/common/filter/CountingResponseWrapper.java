@@ -0,0 +1,137 @@
+package com.pccw.ruby.common.filter;
+
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.LongConsumer;
+
+/**
+ * {@link ContentCachingResponseWrapper} telling a listener about the bytes added to its buffer
+ * as the body is written, so that bodies can be accounted for while the handler is still running.
+ *
+ * <p>Without a listener, the output stream and writer of the base class are returned as is.
+ */
+public class CountingResponseWrapper extends ContentCachingResponseWrapper {
+
+    private LongConsumer captureListener;
+
+    private long reportedBytes;
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    public CountingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Sets the listener told about the change in buffered bytes after each write.
+     *
+     * @param captureListener the listener, or {@code null} for none
+     */
+    public void setCaptureListener(LongConsumer captureListener) {
+        this.captureListener = captureListener;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (captureListener == null) {
+            return super.getOutputStream();
+        }
+        if (outputStream == null) {
+            outputStream = new CountingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (captureListener == null) {
+            return super.getWriter();
+        }
+        if (writer == null) {
+            writer = new CountingWriter(super.getWriter());
+        }
+        return writer;
+    }
+
+    private void count() {
+        long buffered = getContentSize();
+        if (buffered != reportedBytes) {
+            captureListener.accept(buffered - reportedBytes);
+            reportedBytes = buffered;
+        }
+    }
+
+    private final class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    /** The base class writer flushes into the buffer on every write. */
+    private final class CountingWriter extends PrintWriter {
+
+        private CountingWriter(PrintWriter delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(int c) {
+            super.write(c);
+            count();
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            super.write(buf, off, len);
+            count();
+        }
+
+        @Override
+        public void write(String s, int off, int len) {
+            super.write(s, off, len);
+            count();
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.pccw.ruby.common.filter;
+
+import com.pccw.ruby.common.util.HashUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses buffered response bodies before they are copied to the client.
+ *
+ * <p>Since the whole body is already held by {@link ContentCachingResponseWrapper}, its size and
+ * content type are known up front: small or incompressible responses are written as is, and the
+ * others are deflated in one pass into a response with an exact {@code Content-Length}. {@link
+ * Deflater} instances are pooled. Optionally, the compressed bytes of bodies that keep coming back
+ * are cached: a body is only admitted to the cache once it has been seen before, so that the many
+ * responses that never repeat do not take up memory.
+ */
+public class ResponseCompressor {
+
+    protected static final String GZIP = "gzip";
+
+    protected static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> BUFFER =
+            ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final ThreadLocal<byte[]> INPUT_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final int minSize;
+
+    private final List<MediaType> compressibleTypes;
+
+    private final int level;
+
+    private final BlockingQueue<Deflater> gzipDeflaters;
+
+    private final BlockingQueue<Deflater> zlibDeflaters;
+
+    private final int cacheEntries;
+
+    private final int cacheMaxBodyBytes;
+
+    private final Map<CacheKey, CacheEntry> cache;
+
+    /** Keys of bodies seen once, which are cached if they are seen again. */
+    private final Map<CacheKey, Boolean> candidates;
+
+    private final DistributionSummary ratioSummary;
+
+    private final Timer cpuTimer;
+
+    private final boolean cpuTimeSupported;
+
+    /**
+     * @param minSize the minimum body size, in bytes, for a response to be compressed
+     * @param compressibleTypes the content types eligible for compression
+     * @param level the deflate compression level
+     * @param poolSize the maximum number of idle deflaters kept per encoding
+     * @param cacheEntries the number of compressed bodies kept, {@code 0} to disable the cache
+     * @param cacheMaxBodyBytes the largest body size whose compressed form is cached
+     * @param meterRegistry the registry to export metrics to, may be {@code null}
+     */
+    public ResponseCompressor(
+            int minSize,
+            List<MediaType> compressibleTypes,
+            int level,
+            int poolSize,
+            int cacheEntries,
+            int cacheMaxBodyBytes,
+            MeterRegistry meterRegistry) {
+        this.minSize = minSize;
+        this.compressibleTypes = compressibleTypes;
+        this.level = level;
+        this.gzipDeflaters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.zlibDeflaters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.cacheEntries = cacheEntries;
+        this.cacheMaxBodyBytes = cacheMaxBodyBytes;
+        this.cache = cacheEntries > 0 ? new ConcurrentHashMap<>() : null;
+        this.candidates = cacheEntries > 0 ? new ConcurrentHashMap<>() : null;
+        if (meterRegistry != null) {
+            this.ratioSummary =
+                    DistributionSummary.builder("common.response.compression.ratio")
+                            .description("Compressed size divided by original size")
+                            .register(meterRegistry);
+            this.cpuTimer =
+                    Timer.builder("common.response.compression.cpu")
+                            .description("CPU time spent compressing response bodies")
+                            .register(meterRegistry);
+        } else {
+            this.ratioSummary = null;
+            this.cpuTimer = null;
+        }
+        this.cpuTimeSupported =
+                THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+                        && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Writes the buffered body of the given response compressed, if the response is eligible
+     * and the client accepts a supported encoding.
+     *
+     * @param request the current request
+     * @param response the current response, whose body has not been copied yet
+     * @return {@code true} if the compressed body has been written, {@code false} if the caller
+     *     still has to copy the body as is
+     */
+    public boolean compress(HttpServletRequest request, ContentCachingResponseWrapper response)
+            throws IOException {
+        if (!isEligible(response)) {
+            return false;
+        }
+        // the representation depends on Accept-Encoding even when it is sent as is
+        addVaryAcceptEncoding(response);
+        String encoding = selectEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            return false;
+        }
+
+        // the body is streamed from the buffer, it is only copied when admitted to the cache
+        int length = response.getContentSize();
+        CacheKey cacheKey =
+                cache != null && length <= cacheMaxBodyBytes
+                        ? new CacheKey(
+                                encoding,
+                                HashUtils.fnv1a64(response.getContentInputStream()),
+                                length)
+                        : null;
+        byte[] compressed = lookup(cacheKey, response);
+        if (compressed == null) {
+            long start = currentTimeNanos();
+            compressed =
+                    GZIP.equals(encoding)
+                            ? gzip(response.getContentInputStream(), length)
+                            : deflate(response.getContentInputStream(), length);
+            if (cpuTimer != null) {
+                cpuTimer.record(currentTimeNanos() - start, TimeUnit.NANOSECONDS);
+            }
+            if (cacheKey != null) {
+                admit(cacheKey, response, compressed);
+            }
+        }
+        if (ratioSummary != null) {
+            ratioSummary.record((double) compressed.length / length);
+        }
+
+        response.resetBuffer();
+        HttpServletResponse rawResponse = (HttpServletResponse) response.getResponse();
+        rawResponse.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        rawResponse.setContentLength(compressed.length);
+        rawResponse.getOutputStream().write(compressed);
+        return true;
+    }
+
+    protected boolean isEligible(ContentCachingResponseWrapper response) {
+        int status = response.getStatus();
+        if (status < 200
+                || status == HttpServletResponse.SC_NO_CONTENT
+                || status == HttpServletResponse.SC_NOT_MODIFIED
+                || response.isCommitted()
+                || response.getContentSize() < minSize
+                || response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        String contentType = response.getContentType();
+        if (!StringUtils.hasText(contentType)) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return compressibleTypes.stream().anyMatch(type -> type.includes(mediaType));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Selects gzip or deflate from an {@code Accept-Encoding} header, preferring gzip. */
+    protected static String selectEncoding(String acceptEncoding) {
+        if (!StringUtils.hasText(acceptEncoding)) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String token : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim();
+            if (parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?")) {
+                continue;
+            }
+            if (GZIP.equalsIgnoreCase(coding) || "*".equals(coding)) {
+                return GZIP;
+            }
+            if (DEFLATE.equalsIgnoreCase(coding)) {
+                deflate = true;
+            }
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    private byte[] gzip(InputStream body, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length / 4 + 32);
+        output.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+        deflate(gzipDeflaters, true, body, crc, output);
+        writeIntLe(output, (int) crc.getValue());
+        writeIntLe(output, length);
+        return output.toByteArray();
+    }
+
+    private byte[] deflate(InputStream body, int length) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length / 4 + 16);
+        deflate(zlibDeflaters, false, body, null, output);
+        return output.toByteArray();
+    }
+
+    /** Deflates the body chunk by chunk, updating the given checksum, if any, on the way. */
+    private void deflate(
+            BlockingQueue<Deflater> pool,
+            boolean nowrap,
+            InputStream body,
+            CRC32 crc,
+            ByteArrayOutputStream out)
+            throws IOException {
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+        }
+        try {
+            byte[] input = INPUT_BUFFER.get();
+            byte[] buffer = BUFFER.get();
+            int read;
+            while ((read = body.read(input)) != -1) {
+                if (crc != null) {
+                    crc.update(input, 0, read);
+                }
+                deflater.setInput(input, 0, read);
+                while (!deflater.needsInput()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.reset();
+            if (!pool.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private byte[] lookup(CacheKey cacheKey, ContentCachingResponseWrapper response)
+            throws IOException {
+        if (cacheKey == null) {
+            return null;
+        }
+        CacheEntry entry = cache.get(cacheKey);
+        // the hash only narrows the lookup down, the body itself must match
+        if (entry != null && contentEquals(entry.body, response.getContentInputStream())) {
+            return entry.compressed;
+        }
+        return null;
+    }
+
+    private void admit(
+            CacheKey cacheKey, ContentCachingResponseWrapper response, byte[] compressed) {
+        if (candidates.putIfAbsent(cacheKey, Boolean.TRUE) == null) {
+            if (candidates.size() > cacheEntries * 4) {
+                candidates.clear();
+            }
+            return;
+        }
+        candidates.remove(cacheKey);
+        // evicts an arbitrary entry, which is good enough since admitted bodies already repeat
+        Iterator<CacheKey> keys = cache.keySet().iterator();
+        while (cache.size() >= cacheEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+        cache.put(cacheKey, new CacheEntry(response.getContentAsByteArray(), compressed));
+    }
+
+    private static boolean contentEquals(byte[] expected, InputStream actual) throws IOException {
+        byte[] buffer = INPUT_BUFFER.get();
+        int offset = 0;
+        int read;
+        while ((read = actual.read(buffer)) != -1) {
+            if (offset + read > expected.length
+                    || !Arrays.equals(expected, offset, offset + read, buffer, 0, read)) {
+                return false;
+            }
+            offset += read;
+        }
+        return offset == expected.length;
+    }
+
+    private static void addVaryAcceptEncoding(HttpServletResponse response) {
+        for (String vary : response.getHeaders(HttpHeaders.VARY)) {
+            for (String token : StringUtils.commaDelimitedListToStringArray(vary)) {
+                String trimmed = token.trim();
+                if ("*".equals(trimmed) || HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(trimmed)) {
+                    return;
+                }
+            }
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private long currentTimeNanos() {
+        return cpuTimeSupported ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private static void writeIntLe(ByteArrayOutputStream output, int value) {
+        output.write(value & 0xff);
+        output.write((value >> 8) & 0xff);
+        output.write((value >> 16) & 0xff);
+        output.write((value >> 24) & 0xff);
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class CacheKey {
+
+        private final String encoding;
+
+        private final long hash;
+
+        private final int length;
+    }
+
+    @AllArgsConstructor
+    private static final class CacheEntry {
+
+        private final byte[] body;
+
+        private final byte[] compressed;
+    }
+}
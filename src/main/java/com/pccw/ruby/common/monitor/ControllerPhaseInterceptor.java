@@ -0,0 +1,32 @@
+package com.pccw.ruby.common.monitor;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Records when the handler of the current request starts and completes. */
+public class ControllerPhaseInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(
+            HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestTrace trace = RequestTraceHolder.get();
+        if (trace != null) {
+            trace.markControllerStart();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            Exception ex) {
+        RequestTrace trace = RequestTraceHolder.get();
+        if (trace != null) {
+            trace.markControllerEnd();
+        }
+    }
+}
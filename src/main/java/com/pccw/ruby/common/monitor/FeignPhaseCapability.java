@@ -0,0 +1,13 @@
+package com.pccw.ruby.common.monitor;
+
+import feign.Capability;
+import feign.Client;
+
+/** Wraps the client of every Feign client in a {@link FeignPhaseClient}. */
+public class FeignPhaseCapability implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return client instanceof FeignPhaseClient ? client : new FeignPhaseClient(client);
+    }
+}
@@ -0,0 +1,38 @@
+package com.pccw.ruby.common.monitor;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import java.io.IOException;
+
+/**
+ * Records the time spent in Feign calls made on the request thread.
+ *
+ * <p>The call is timed around the underlying {@link Client}, so that every outcome is recorded,
+ * including error statuses, {@code void} and {@link Response} return types, and I/O failures such
+ * as timeouts. Each retried attempt counts as a call. Reading and decoding the response body is
+ * not included.
+ */
+public class FeignPhaseClient implements Client {
+
+    private final Client delegate;
+
+    public FeignPhaseClient(Client delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        RequestTrace trace = RequestTraceHolder.get();
+        if (trace == null) {
+            return delegate.execute(request, options);
+        }
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(request, options);
+        } finally {
+            trace.recordFeignCall(System.nanoTime() - start);
+        }
+    }
+}
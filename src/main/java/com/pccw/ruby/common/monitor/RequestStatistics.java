@@ -0,0 +1,175 @@
+package com.pccw.ruby.common.monitor;
+
+import com.pccw.ruby.common.enums.ErrorCode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live request statistics fed by the common filter and exception handler.
+ *
+ * <p>Recording is lock-free: counters are {@link LongAdder}s and latencies go to per-route HDR
+ * {@link Recorder}s, which are only folded into histograms when the statistics are read.
+ */
+public class RequestStatistics {
+
+    protected static final String OTHER_ROUTE = "OTHER";
+
+    private final int maxRoutes;
+
+    private final Set<RequestTrace> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, RouteStatistics> routes = new ConcurrentHashMap<>();
+
+    private final Map<ErrorCode, LongAdder> errors = new EnumMap<>(ErrorCode.class);
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder currentCapturedBytes = new LongAdder();
+
+    private final AtomicLong maxCapturedBytes = new AtomicLong();
+
+    public RequestStatistics(int maxRoutes) {
+        this.maxRoutes = maxRoutes;
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            errors.put(errorCode, new LongAdder());
+        }
+    }
+
+    public void start(RequestTrace trace) {
+        inFlight.add(trace);
+    }
+
+    /**
+     * Accounts for body bytes buffered by an in-flight request as they are buffered. They are
+     * released when the request completes.
+     *
+     * @param trace the trace of the request buffering the bytes
+     * @param deltaBytes the number of bytes added to the buffers
+     */
+    public void capture(RequestTrace trace, long deltaBytes) {
+        trace.addCapturedBytes(deltaBytes);
+        currentCapturedBytes.add(deltaBytes);
+        long captured = trace.getCapturedBytes();
+        if (captured > maxCapturedBytes.get()) {
+            maxCapturedBytes.accumulateAndGet(captured, Math::max);
+        }
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param trace the trace of the completed request
+     * @param route the route key, typically the method and the matched handler pattern
+     */
+    public void complete(RequestTrace trace, String route) {
+        inFlight.remove(trace);
+        long durationMicros =
+                TimeUnit.NANOSECONDS.toMicros(trace.getEndNanos() - trace.getStartNanos());
+        resolveRoute(route).recorder.recordValue(Math.max(0, durationMicros));
+        currentCapturedBytes.add(-trace.getCapturedBytes());
+    }
+
+    public void recordError(ErrorCode errorCode) {
+        errors.get(errorCode).increment();
+    }
+
+    /**
+     * Records a request rejected by load shedding, which never reaches the filter tracing
+     * requests, as a {@link ErrorCode#SERVICE_UNAVAILABLE} error.
+     */
+    public void recordRejection() {
+        rejected.increment();
+        recordError(ErrorCode.SERVICE_UNAVAILABLE);
+    }
+
+    public List<InFlightRequest> getInFlightRequests() {
+        long now = System.nanoTime();
+        List<InFlightRequest> requests = new ArrayList<>();
+        for (RequestTrace trace : inFlight) {
+            requests.add(
+                    new InFlightRequest(
+                            trace.getMethod(),
+                            trace.getPath(),
+                            TimeUnit.NANOSECONDS.toMillis(now - trace.getStartNanos())));
+        }
+        requests.sort((a, b) -> Long.compare(b.getAgeMs(), a.getAgeMs()));
+        return requests;
+    }
+
+    /** Returns a cumulative latency histogram, in microseconds, per route. */
+    public Map<String, Histogram> getRouteHistograms() {
+        Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+        routes.forEach((route, statistics) -> histograms.put(route, statistics.snapshot()));
+        return histograms;
+    }
+
+    public Map<ErrorCode, Long> getErrorCounts() {
+        Map<ErrorCode, Long> counts = new EnumMap<>(ErrorCode.class);
+        errors.forEach((errorCode, count) -> counts.put(errorCode, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** Returns the body bytes currently held by in-flight requests. */
+    public long getCurrentCapturedBytes() {
+        return currentCapturedBytes.sum();
+    }
+
+    public long getMaxCapturedBytes() {
+        return maxCapturedBytes.get();
+    }
+
+    private RouteStatistics resolveRoute(String route) {
+        RouteStatistics statistics = routes.get(route);
+        if (statistics != null) {
+            return statistics;
+        }
+        if (routes.size() >= maxRoutes) {
+            route = OTHER_ROUTE;
+        }
+        return routes.computeIfAbsent(route, key -> new RouteStatistics());
+    }
+
+    private static final class RouteStatistics {
+
+        private final Recorder recorder = new Recorder(3);
+
+        private final Histogram accumulated = new Histogram(3);
+
+        private Histogram interval;
+
+        private synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.add(interval);
+            return accumulated.copy();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class InFlightRequest {
+
+        private final String method;
+
+        private final String path;
+
+        private final long ageMs;
+    }
+}
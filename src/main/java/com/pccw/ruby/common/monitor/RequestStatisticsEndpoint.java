@@ -0,0 +1,74 @@
+package com.pccw.ruby.common.monitor;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Exposes {@link RequestStatistics} as the {@code requeststats} actuator endpoint. */
+@Endpoint(id = "requeststats")
+public class RequestStatisticsEndpoint {
+
+    private static final int DEFAULT_TOP = 10;
+
+    private final RequestStatistics requestStatistics;
+
+    public RequestStatisticsEndpoint(RequestStatistics requestStatistics) {
+        this.requestStatistics = requestStatistics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics(@Nullable Integer top) {
+        Map<String, Map<String, Object>> routes = new TreeMap<>();
+        requestStatistics
+                .getRouteHistograms()
+                .forEach((route, histogram) -> routes.put(route, summarize(histogram)));
+
+        List<Map<String, Object>> slowestRoutes = new ArrayList<>();
+        routes.entrySet().stream()
+                .sorted(
+                        (a, b) ->
+                                Double.compare(
+                                        (double) b.getValue().get("p99Ms"),
+                                        (double) a.getValue().get("p99Ms")))
+                .limit(top != null ? top : DEFAULT_TOP)
+                .forEach(
+                        entry -> {
+                            Map<String, Object> slowRoute = new LinkedHashMap<>();
+                            slowRoute.put("route", entry.getKey());
+                            slowRoute.putAll(entry.getValue());
+                            slowestRoutes.add(slowRoute);
+                        });
+
+        Map<String, Object> capturedBodies = new LinkedHashMap<>();
+        capturedBodies.put("currentBytes", requestStatistics.getCurrentCapturedBytes());
+        capturedBodies.put("maxBytesPerRequest", requestStatistics.getMaxCapturedBytes());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("inFlight", requestStatistics.getInFlightRequests());
+        result.put("slowestRoutes", slowestRoutes);
+        result.put("routes", routes);
+        result.put("errors", requestStatistics.getErrorCounts());
+        result.put("rejected", requestStatistics.getRejectedCount());
+        result.put("capturedBodies", capturedBodies);
+        return result;
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("meanMs", histogram.getMean() / 1000.0);
+        summary.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p90Ms", histogram.getValueAtPercentile(90) / 1000.0);
+        summary.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+}
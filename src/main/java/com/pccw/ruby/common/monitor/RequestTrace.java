@@ -0,0 +1,97 @@
+package com.pccw.ruby.common.monitor;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Phase timestamps of a single request, written by the request thread and read by the {@link
+ * SlowRequestWatchdog}.
+ *
+ * <p>All timestamps are {@link System#nanoTime()} values, {@code 0} meaning the phase has not
+ * been reached.
+ */
+@Getter
+public class RequestTrace {
+
+    private final String method;
+
+    private final String path;
+
+    private final Thread thread;
+
+    private final long startNanos;
+
+    private volatile long controllerStartNanos;
+
+    private volatile long controllerEndNanos;
+
+    private volatile long bodyCopyStartNanos;
+
+    private volatile long endNanos;
+
+    private volatile int feignCalls;
+
+    private volatile long feignNanos;
+
+    private volatile long capturedBytes;
+
+    private final List<String> samples = new ArrayList<>();
+
+    public RequestTrace(String method, String path, Thread thread) {
+        this.method = method;
+        this.path = path;
+        this.thread = thread;
+        this.startNanos = System.nanoTime();
+    }
+
+    public void markControllerStart() {
+        controllerStartNanos = System.nanoTime();
+    }
+
+    public void markControllerEnd() {
+        controllerEndNanos = System.nanoTime();
+    }
+
+    /**
+     * Records a completed Feign call made on the request thread.
+     *
+     * @param durationNanos the duration of the call
+     */
+    public void recordFeignCall(long durationNanos) {
+        feignCalls++;
+        feignNanos += durationNanos;
+    }
+
+    /**
+     * Records a change in the number of body bytes held by the request and response wrappers.
+     *
+     * @param deltaBytes the number of bytes added, negative if bytes were released
+     */
+    public void addCapturedBytes(long deltaBytes) {
+        capturedBytes += deltaBytes;
+    }
+
+    public void markBodyCopyStart() {
+        bodyCopyStartNanos = System.nanoTime();
+    }
+
+    public void markEnd() {
+        endNanos = System.nanoTime();
+    }
+
+    public boolean isCompleted() {
+        return endNanos != 0;
+    }
+
+    public synchronized int addSample(String sample) {
+        samples.add(sample);
+        return samples.size();
+    }
+
+    public synchronized List<String> getSamples() {
+        return Collections.unmodifiableList(new ArrayList<>(samples));
+    }
+}
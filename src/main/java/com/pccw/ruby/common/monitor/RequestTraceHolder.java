@@ -0,0 +1,21 @@
+package com.pccw.ruby.common.monitor;
+
+/** Binds the {@link RequestTrace} of the current request to the request thread. */
+public final class RequestTraceHolder {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private RequestTraceHolder() {}
+
+    public static RequestTrace get() {
+        return CURRENT.get();
+    }
+
+    public static void set(RequestTrace trace) {
+        CURRENT.set(trace);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
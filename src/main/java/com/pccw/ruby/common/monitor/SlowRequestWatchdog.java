@@ -0,0 +1,213 @@
+package com.pccw.ruby.common.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Takes stack samples of requests running past a threshold and reports slow requests.
+ *
+ * <p>Requests are registered on a single hashed timer wheel driven by one daemon thread, so the
+ * cost per request is one queue insertion regardless of the request rate. Requests that complete
+ * before their deadline are dropped lazily when their bucket comes up.
+ */
+@Slf4j
+public class SlowRequestWatchdog {
+
+    private static final int MAX_STACK_DEPTH = 32;
+
+    private final long thresholdNanos;
+
+    private final long tickNanos;
+
+    private final int thresholdTicks;
+
+    private final int sampleIntervalTicks;
+
+    private final int maxSamples;
+
+    private final Queue<Timeout>[] wheel;
+
+    private final int mask;
+
+    private final Thread worker;
+
+    private volatile long currentTick;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param thresholdMillis the duration after which a request is considered slow
+     * @param sampleIntervalMillis the interval between two stack samples of the same request
+     * @param maxSamples the maximum number of stack samples taken per request
+     * @param tickMillis the resolution of the timer wheel
+     * @param wheelSize the number of buckets of the timer wheel, rounded up to a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SlowRequestWatchdog(
+            long thresholdMillis,
+            long sampleIntervalMillis,
+            int maxSamples,
+            long tickMillis,
+            int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.thresholdTicks = (int) Math.max(1, thresholdMillis / tickMillis);
+        this.sampleIntervalTicks = (int) Math.max(1, sampleIntervalMillis / tickMillis);
+        this.maxSamples = maxSamples;
+
+        int size = Integer.highestOneBit(wheelSize - 1 > 0 ? wheelSize - 1 : 1) << 1;
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+
+        this.worker = new Thread(this::run, "slow-request-watchdog");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Starts watching the given request.
+     *
+     * @param trace the trace of a request that has just started
+     */
+    public void watch(RequestTrace trace) {
+        if (maxSamples > 0) {
+            schedule(new Timeout(trace), thresholdTicks);
+        }
+    }
+
+    /**
+     * Reports the given request as a single log event if it was slow.
+     *
+     * @param trace the trace of the completed request, already marked as ended
+     * @param status the response status
+     */
+    public void complete(RequestTrace trace, int status) {
+        long durationNanos = trace.getEndNanos() - trace.getStartNanos();
+        if (durationNanos >= thresholdNanos) {
+            log.warn(
+                    "SLOW REQUEST {}, {}, {}, {}, {}, {}",
+                    kv("method", trace.getMethod()),
+                    kv("path", trace.getPath()),
+                    kv("status", status),
+                    kv("durationMs", toMillis(durationNanos)),
+                    kv("phases", buildPhases(trace)),
+                    kv("samples", trace.getSamples()));
+        }
+    }
+
+    private Map<String, Object> buildPhases(RequestTrace trace) {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        long start = trace.getStartNanos();
+        long controllerStart = trace.getControllerStartNanos();
+        long controllerEnd = trace.getControllerEndNanos();
+        long bodyCopyStart = trace.getBodyCopyStartNanos();
+        if (controllerStart != 0) {
+            phases.put("filterMs", toMillis(controllerStart - start));
+            if (controllerEnd != 0) {
+                phases.put("controllerMs", toMillis(controllerEnd - controllerStart));
+            }
+        }
+        phases.put("feignCalls", trace.getFeignCalls());
+        phases.put("feignMs", toMillis(trace.getFeignNanos()));
+        if (bodyCopyStart != 0) {
+            phases.put("bodyCopyMs", toMillis(trace.getEndNanos() - bodyCopyStart));
+        }
+        return phases;
+    }
+
+    private void schedule(Timeout timeout, int delayTicks) {
+        timeout.deadlineTick = currentTick + delayTicks;
+        wheel[(int) (timeout.deadlineTick & mask)].add(timeout);
+    }
+
+    private void run() {
+        long nextTickNanos = System.nanoTime() + tickNanos;
+        while (running) {
+            long sleepNanos = nextTickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            nextTickNanos += tickNanos;
+            long tick = currentTick;
+            expire(wheel[(int) (tick & mask)], tick);
+            currentTick = tick + 1;
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket, long tick) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.trace.isCompleted()) {
+                iterator.remove();
+            } else if (timeout.deadlineTick <= tick) {
+                iterator.remove();
+                try {
+                    if (sample(timeout.trace) < maxSamples) {
+                        schedule(timeout, sampleIntervalTicks);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Cannot sample slow request: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private int sample(RequestTrace trace) {
+        StackTraceElement[] stackTrace = trace.getThread().getStackTrace();
+        StringBuilder builder = new StringBuilder();
+        long ageNanos = System.nanoTime() - trace.getStartNanos();
+        builder.append('+').append(toMillis(ageNanos)).append("ms");
+        int depth = Math.min(stackTrace.length, MAX_STACK_DEPTH);
+        for (int i = 0; i < depth; i++) {
+            builder.append(" at ").append(stackTrace[i]);
+        }
+        // the request may have completed while the stack was being taken
+        if (trace.isCompleted()) {
+            return maxSamples;
+        }
+        return trace.addSample(builder.toString());
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class Timeout {
+
+        private final RequestTrace trace;
+
+        private long deadlineTick;
+
+        private Timeout(RequestTrace trace) {
+            this.trace = trace;
+        }
+    }
+}
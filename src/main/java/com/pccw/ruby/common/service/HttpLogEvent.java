@@ -0,0 +1,128 @@
+package com.pccw.ruby.common.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.logstash.logback.argument.StructuredArgument;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * REQUEST or RESPONSE log event written field by field to the JSON generator.
+ *
+ * <p>Instances are reused per thread and hold headers and parameters in flat arrays, so logging
+ * an event allocates no maps and no per-field arguments. Because the instance is reused by the
+ * next request on the same thread, it must be encoded synchronously: it is not safe to use with
+ * asynchronous appenders.
+ */
+public final class HttpLogEvent implements StructuredArgument {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final ThreadLocal<HttpLogEvent> REQUEST_EVENT =
+            ThreadLocal.withInitial(HttpLogEvent::new);
+
+    private static final ThreadLocal<HttpLogEvent> RESPONSE_EVENT =
+            ThreadLocal.withInitial(HttpLogEvent::new);
+
+    private String method;
+
+    private String path;
+
+    private int status = -1;
+
+    private long durationMs = -1;
+
+    private String[] headers = new String[INITIAL_CAPACITY * 2];
+
+    private int headerCount;
+
+    private String[] parameters = new String[INITIAL_CAPACITY * 2];
+
+    private int parameterCount;
+
+    private HttpLogEvent() {}
+
+    /** Returns the reset request event of the current thread. */
+    public static HttpLogEvent request(String method, String path) {
+        return REQUEST_EVENT.get().reset(method, path, -1, -1);
+    }
+
+    /** Returns the reset response event of the current thread. */
+    public static HttpLogEvent response(String method, String path, int status, long durationMs) {
+        return RESPONSE_EVENT.get().reset(method, path, status, durationMs);
+    }
+
+    public void addHeader(String name, String value) {
+        headers = ensureCapacity(headers, headerCount);
+        headers[headerCount * 2] = name;
+        headers[headerCount * 2 + 1] = value;
+        headerCount++;
+    }
+
+    public void addParameter(String name, String value) {
+        parameters = ensureCapacity(parameters, parameterCount);
+        parameters[parameterCount * 2] = name;
+        parameters[parameterCount * 2 + 1] = value;
+        parameterCount++;
+    }
+
+    @Override
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStringField("method", method);
+        generator.writeStringField("path", path);
+        if (status >= 0) {
+            generator.writeNumberField("status", status);
+        }
+        if (durationMs >= 0) {
+            generator.writeNumberField("durationMs", durationMs);
+        }
+        writeObject(generator, "headers", headers, headerCount);
+        writeObject(generator, "parameters", parameters, parameterCount);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("method=").append(method).append(", path=").append(path);
+        if (status >= 0) {
+            builder.append(", status=").append(status);
+        }
+        if (durationMs >= 0) {
+            builder.append(", durationMs=").append(durationMs);
+        }
+        return builder.toString();
+    }
+
+    private HttpLogEvent reset(String method, String path, int status, long durationMs) {
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.durationMs = durationMs;
+        Arrays.fill(headers, 0, headerCount * 2, null);
+        headerCount = 0;
+        Arrays.fill(parameters, 0, parameterCount * 2, null);
+        parameterCount = 0;
+        return this;
+    }
+
+    private static String[] ensureCapacity(String[] pairs, int count) {
+        if (count * 2 < pairs.length) {
+            return pairs;
+        }
+        return Arrays.copyOf(pairs, pairs.length * 2);
+    }
+
+    private static void writeObject(
+            JsonGenerator generator, String fieldName, String[] pairs, int count)
+            throws IOException {
+        // METADATA events carry no headers or parameters, so leave the fields out altogether
+        if (count == 0) {
+            return;
+        }
+        generator.writeObjectFieldStart(fieldName);
+        for (int i = 0; i < count; i++) {
+            generator.writeStringField(pairs[i * 2], pairs[i * 2 + 1]);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,34 @@
+package com.pccw.ruby.common.service;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.logstash.logback.composite.AbstractJsonProvider;
+
+import java.io.IOException;
+
+/**
+ * Writes the fields of {@link HttpLogEvent} arguments for composite encoders.
+ *
+ * <p>{@code LogstashEncoder} already writes them through its arguments provider. This provider is
+ * meant for {@code LoggingEventCompositeJsonEncoder} configurations without {@code <arguments/>},
+ * and must not be combined with it or the fields are written twice:
+ *
+ * <pre>
+ * &lt;provider class="com.pccw.ruby.common.service.HttpLogEventJsonProvider"/&gt;
+ * </pre>
+ */
+public class HttpLogEventJsonProvider extends AbstractJsonProvider<ILoggingEvent> {
+
+    @Override
+    public void writeTo(JsonGenerator generator, ILoggingEvent event) throws IOException {
+        Object[] arguments = event.getArgumentArray();
+        if (arguments == null) {
+            return;
+        }
+        for (Object argument : arguments) {
+            if (argument instanceof HttpLogEvent) {
+                ((HttpLogEvent) argument).writeTo(generator);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.pccw.ruby.common.service;
+
+import com.pccw.ruby.common.enums.LoggingMode;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** What {@link LoggingService} logs for the requests of a route. */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class LoggingPolicy {
+
+    /** Maximum number of body bytes logged by configured policies that do not set their own. */
+    public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+
+    /**
+     * Policy of routes without their own policy: headers and parameters at INFO, bodies only when
+     * DEBUG is enabled.
+     */
+    public static final LoggingPolicy DEFAULT = new LoggingPolicy(LoggingMode.HEADERS, 1.0, -1);
+
+    /** Policy of requests that are not logged. */
+    public static final LoggingPolicy OFF = new LoggingPolicy(LoggingMode.OFF, 0, 0);
+
+    private final LoggingMode mode;
+
+    /** Fraction of requests logged, between {@code 0} and {@code 1}. */
+    private final double sampleRate;
+
+    /** Maximum number of body bytes logged, negative for no limit. */
+    private final int maxBodyBytes;
+
+    /** Decides whether the current request is logged, according to the sample rate. */
+    public boolean sample() {
+        if (mode == LoggingMode.OFF || sampleRate <= 0) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
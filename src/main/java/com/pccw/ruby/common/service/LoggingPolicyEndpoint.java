@@ -0,0 +1,49 @@
+package com.pccw.ruby.common.service;
+
+import com.pccw.ruby.common.enums.LoggingMode;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+/**
+ * Exposes the {@link LoggingPolicyRegistry} as the {@code loggingpolicies} actuator endpoint.
+ *
+ * <p>Changes made here last until the next restart or refresh of the policy configuration.
+ */
+@Endpoint(id = "loggingpolicies")
+public class LoggingPolicyEndpoint {
+
+    private final LoggingPolicyRegistry loggingPolicyRegistry;
+
+    public LoggingPolicyEndpoint(LoggingPolicyRegistry loggingPolicyRegistry) {
+        this.loggingPolicyRegistry = loggingPolicyRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, LoggingPolicy> policies() {
+        return loggingPolicyRegistry.getPolicies();
+    }
+
+    @WriteOperation
+    public void putPolicy(
+            String pattern,
+            LoggingMode mode,
+            @Nullable Double sampleRate,
+            @Nullable Integer maxBodyBytes) {
+        loggingPolicyRegistry.putPolicy(
+                pattern,
+                new LoggingPolicy(
+                        mode,
+                        sampleRate != null ? sampleRate : 1.0,
+                        maxBodyBytes != null ? maxBodyBytes : -1));
+    }
+
+    @DeleteOperation
+    public void removePolicy(String pattern) {
+        loggingPolicyRegistry.removePolicy(pattern);
+    }
+}
@@ -0,0 +1,22 @@
+package com.pccw.ruby.common.service;
+
+import com.pccw.ruby.common.enums.LoggingMode;
+import lombok.Data;
+
+/** Bindable form of a {@link LoggingPolicy} for a route pattern. */
+@Data
+public class LoggingPolicyProperties {
+
+    private String pattern;
+
+    private LoggingMode mode = LoggingMode.HEADERS;
+
+    private double sampleRate = 1.0;
+
+    /** Maximum number of body bytes logged, and so cached, negative for no limit. */
+    private int maxBodyBytes = LoggingPolicy.DEFAULT_MAX_BODY_BYTES;
+
+    public LoggingPolicy toPolicy() {
+        return new LoggingPolicy(mode, sampleRate, maxBodyBytes);
+    }
+}
@@ -0,0 +1,61 @@
+package com.pccw.ruby.common.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link LoggingPolicyTable}.
+ *
+ * <p>Readers resolve a policy with a single volatile read of the current table. Updates compile a
+ * new table from a copy of the current definitions and swap it in atomically.
+ */
+public class LoggingPolicyRegistry {
+
+    private final LoggingPolicy defaultPolicy;
+
+    private final AtomicReference<LoggingPolicyTable> table;
+
+    public LoggingPolicyRegistry(Map<String, LoggingPolicy> policies) {
+        this(policies, LoggingPolicy.DEFAULT);
+    }
+
+    public LoggingPolicyRegistry(Map<String, LoggingPolicy> policies, LoggingPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+        this.table = new AtomicReference<>(LoggingPolicyTable.compile(policies, defaultPolicy));
+    }
+
+    public LoggingPolicy resolve(String path) {
+        return table.get().lookup(path);
+    }
+
+    public Map<String, LoggingPolicy> getPolicies() {
+        return table.get().getDefinitions();
+    }
+
+    /**
+     * Replaces all policies.
+     *
+     * @param policies the policies keyed by route pattern, in matching order
+     */
+    public synchronized void replacePolicies(Map<String, LoggingPolicy> policies) {
+        table.set(LoggingPolicyTable.compile(policies, defaultPolicy));
+    }
+
+    /**
+     * Adds or replaces the policy of a route pattern. New patterns are matched after the existing
+     * ones.
+     */
+    public synchronized void putPolicy(String pattern, LoggingPolicy policy) {
+        Map<String, LoggingPolicy> policies = new LinkedHashMap<>(getPolicies());
+        policies.put(pattern, policy);
+        replacePolicies(policies);
+    }
+
+    public synchronized void removePolicy(String pattern) {
+        Map<String, LoggingPolicy> policies = new LinkedHashMap<>(getPolicies());
+        if (policies.remove(pattern) != null) {
+            replacePolicies(policies);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.pccw.ruby.common.service;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lookup table of logging policies compiled from route patterns.
+ *
+ * <p>Patterns without wildcards are looked up in a hash map. Other patterns are matched in
+ * declaration order, the first match winning, and the result is memoized per path in a small LRU
+ * cache. The policies are resolved before the request reaches a handler, so the matched route
+ * pattern is not known yet, and paths with variables or chosen by clients only ever evict each
+ * other rather than pile up. The policies of a table never change, only its memo does: a change
+ * of policies compiles a new table.
+ */
+public final class LoggingPolicyTable {
+
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private static final int MAX_RESOLVED_PATHS = 1024;
+
+    private final Map<String, LoggingPolicy> definitions;
+
+    private final LoggingPolicy defaultPolicy;
+
+    private final Map<String, LoggingPolicy> exactPaths = new HashMap<>();
+
+    private final String[] patterns;
+
+    private final LoggingPolicy[] patternPolicies;
+
+    private final Map<String, LoggingPolicy> resolvedPaths =
+            Collections.synchronizedMap(
+                    new LinkedHashMap<String, LoggingPolicy>(64, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(
+                                Map.Entry<String, LoggingPolicy> eldest) {
+                            return size() > MAX_RESOLVED_PATHS;
+                        }
+                    });
+
+    private LoggingPolicyTable(
+            Map<String, LoggingPolicy> definitions, LoggingPolicy defaultPolicy) {
+        this.definitions = Collections.unmodifiableMap(new LinkedHashMap<>(definitions));
+        this.defaultPolicy = defaultPolicy;
+
+        Map<String, LoggingPolicy> wildcardPatterns = new LinkedHashMap<>();
+        definitions.forEach(
+                (pattern, policy) -> {
+                    if (PATH_MATCHER.isPattern(pattern)) {
+                        wildcardPatterns.put(pattern, policy);
+                    } else {
+                        exactPaths.put(pattern, policy);
+                    }
+                });
+        this.patterns = wildcardPatterns.keySet().toArray(new String[0]);
+        this.patternPolicies = wildcardPatterns.values().toArray(new LoggingPolicy[0]);
+    }
+
+    /**
+     * Compiles a table from the given policies.
+     *
+     * @param definitions the policies keyed by route pattern, in matching order
+     * @param defaultPolicy the policy of paths matching no pattern
+     * @return the compiled table
+     */
+    public static LoggingPolicyTable compile(
+            Map<String, LoggingPolicy> definitions, LoggingPolicy defaultPolicy) {
+        return new LoggingPolicyTable(definitions, defaultPolicy);
+    }
+
+    public LoggingPolicy lookup(String path) {
+        LoggingPolicy policy = exactPaths.get(path);
+        if (policy != null) {
+            return policy;
+        }
+        policy = resolvedPaths.get(path);
+        if (policy != null) {
+            return policy;
+        }
+        policy = match(path);
+        resolvedPaths.put(path, policy);
+        return policy;
+    }
+
+    public Map<String, LoggingPolicy> getDefinitions() {
+        return definitions;
+    }
+
+    private LoggingPolicy match(String path) {
+        for (int i = 0; i < patterns.length; i++) {
+            if (PATH_MATCHER.match(patterns[i], path)) {
+                return patternPolicies[i];
+            }
+        }
+        return defaultPolicy;
+    }
+}
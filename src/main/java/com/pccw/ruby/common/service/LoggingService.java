@@ -1,14 +1,25 @@
 package com.pccw.ruby.common.service;
 
+import com.pccw.ruby.common.enums.LoggingMode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
@@ -28,59 +39,217 @@ public class LoggingService {
 
     protected static final List<String> WHITELIST_HEADER = Arrays.asList("User-Agent");
 
+    protected static final int DEFAULT_MAX_PART_BYTES = 1024;
+
+    /** Request attribute holding the {@link System#nanoTime()} at which the request started. */
+    public static final String START_NANOS_ATTRIBUTE =
+            LoggingService.class.getName() + ".START_NANOS";
+
+    /**
+     * Request attribute holding the description of the multipart parts, recorded by {@link
+     * #recordMultipartParts} before the parts are deleted.
+     */
+    public static final String MULTIPART_PARTS_ATTRIBUTE =
+            LoggingService.class.getName() + ".MULTIPART_PARTS";
+
+    protected MultipartPayloadScanner multipartPayloadScanner;
+
+    /**
+     * Whether REQUEST and RESPONSE events are logged as a reused {@link HttpLogEvent} instead of
+     * maps wrapped in key/value arguments. Requires synchronous appenders.
+     */
+    @Getter @Setter protected boolean directEncoding;
+
+    /**
+     * Whether the trace and span IDs of the current span are written as structured fields, for
+     * services running with Sleuth's MDC correlation turned off.
+     */
+    @Setter protected boolean traceFieldsEnabled;
+
+    public LoggingService() {
+        this(DEFAULT_MAX_PART_BYTES);
+    }
+
+    public LoggingService(int maxPartBytes) {
+        this.multipartPayloadScanner = new MultipartPayloadScanner(VISIBLE_TYPES, maxPartBytes);
+    }
+
     public void logRequest(ContentCachingRequestWrapper request) {
-        Map<String, String> headers = buildHeadersMap(request);
-        Map<String, String> parameters = buildParametersMap(request);
-        log.info(
-                "REQUEST {}, {}, {}, {}",
-                kv("method", request.getMethod()),
-                kv("path", request.getRequestURI()),
-                kv("headers", headers),
-                kv("parameters", parameters));
-
-        if (log.isDebugEnabled()) {
-            log.debug(
-                    "REQUEST {}",
-                    kv(
-                            "body",
-                            buildPayload(
-                                    request.getContentAsByteArray(),
-                                    request.getContentType(),
-                                    request.getCharacterEncoding())));
+        logRequest(request, LoggingPolicy.DEFAULT);
+    }
+
+    public void logRequest(ContentCachingRequestWrapper request, LoggingPolicy policy) {
+        if (policy.getMode() == LoggingMode.OFF) {
+            return;
+        }
+        boolean withHeaders = policy.getMode() != LoggingMode.METADATA;
+        if (directEncoding) {
+            log.info("REQUEST {}", buildRequestEvent(request, withHeaders), currentTraceFields());
+        } else if (withHeaders) {
+            Map<String, String> headers = buildHeadersMap(request);
+            Map<String, String> parameters = buildParametersMap(request);
+            log.info(
+                    "REQUEST {}, {}, {}, {}",
+                    kv("method", request.getMethod()),
+                    kv("path", request.getRequestURI()),
+                    kv("headers", headers),
+                    kv("parameters", parameters),
+                    currentTraceFields());
+        } else {
+            log.info(
+                    "REQUEST {}, {}",
+                    kv("method", request.getMethod()),
+                    kv("path", request.getRequestURI()),
+                    currentTraceFields());
+        }
+
+        if (isBodyLogged(policy)) {
+            logBody("REQUEST {}", buildRequestPayload(request, policy), policy);
         }
     }
 
     public void logResponse(
             ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
-        Map<String, String> headers = buildHeadersMap(response);
+        logResponse(request, response, LoggingPolicy.DEFAULT);
+    }
 
-        log.info(
-                "RESPONSE {}, {}, {}",
-                kv("method", request.getMethod()),
-                kv("path", request.getRequestURI()),
-                kv("headers", headers));
+    public void logResponse(
+            ContentCachingRequestWrapper request,
+            ContentCachingResponseWrapper response,
+            LoggingPolicy policy) {
+        if (policy.getMode() == LoggingMode.OFF) {
+            return;
+        }
+        boolean withHeaders = policy.getMode() != LoggingMode.METADATA;
+        if (directEncoding) {
+            log.info(
+                    "RESPONSE {}",
+                    buildResponseEvent(request, response, withHeaders),
+                    currentTraceFields());
+        } else if (withHeaders) {
+            Map<String, String> headers = buildHeadersMap(response);
+
+            log.info(
+                    "RESPONSE {}, {}, {}",
+                    kv("method", request.getMethod()),
+                    kv("path", request.getRequestURI()),
+                    kv("headers", headers),
+                    currentTraceFields());
+        } else {
+            log.info(
+                    "RESPONSE {}, {}, {}, {}",
+                    kv("method", request.getMethod()),
+                    kv("path", request.getRequestURI()),
+                    kv("status", response.getStatus()),
+                    kv("durationMs", durationMillis(request)),
+                    currentTraceFields());
+        }
 
-        if (log.isDebugEnabled()) {
-            log.debug(
+        if (isBodyLogged(policy)) {
+            logBody(
                     "RESPONSE {}",
-                    kv(
-                            "body",
-                            buildPayload(
-                                    response.getContentAsByteArray(),
-                                    response.getContentType(),
-                                    response.getCharacterEncoding())));
+                    buildPayload(
+                            readContent(response, policy.getMaxBodyBytes()),
+                            response.getContentType(),
+                            response.getCharacterEncoding(),
+                            policy.getMaxBodyBytes()),
+                    policy);
+        }
+    }
+
+    /**
+     * Whether the response event carries the request duration, which requires the {@link
+     * #START_NANOS_ATTRIBUTE} to be set when the request starts.
+     */
+    public boolean isDurationLogged(LoggingPolicy policy) {
+        return directEncoding || policy.getMode() == LoggingMode.METADATA;
+    }
+
+    /**
+     * Bodies are logged at INFO for routes with a {@link LoggingMode#BODY} policy, and otherwise
+     * only at DEBUG for routes logging headers.
+     */
+    public boolean isBodyLogged(LoggingPolicy policy) {
+        return policy.getMode() == LoggingMode.BODY
+                || (policy.getMode() == LoggingMode.HEADERS && log.isDebugEnabled());
+    }
+
+    private void logBody(String message, String payload, LoggingPolicy policy) {
+        Object body = kv("body", payload);
+        if (policy.getMode() == LoggingMode.BODY) {
+            log.info(message, body, currentTraceFields());
+        } else {
+            log.debug(message, body, currentTraceFields());
+        }
+    }
+
+    /**
+     * Records the description of the parts of a multipart request whose parts have been parsed,
+     * for them to be logged with the request once it completes.
+     *
+     * @param request the multipart request, whose parts have not been deleted yet
+     */
+    public void recordMultipartParts(HttpServletRequest request) {
+        String parts = multipartPayloadScanner.describeParts(request);
+        if (parts != null) {
+            request.setAttribute(MULTIPART_PARTS_ATTRIBUTE, parts);
+        }
+    }
+
+    /**
+     * Multipart requests are described from the parts recorded while the request was handled
+     * when there are any, since their body then never goes through the cache.
+     */
+    private String buildRequestPayload(ContentCachingRequestWrapper request, LoggingPolicy policy) {
+        String contentType = request.getContentType();
+        if (StringUtils.startsWithIgnoreCase(contentType, MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            Object parts = request.getAttribute(MULTIPART_PARTS_ATTRIBUTE);
+            if (parts instanceof String) {
+                return truncate((String) parts, policy.getMaxBodyBytes()).replaceAll("\"", "");
+            }
+        }
+        return buildPayload(
+                request.getContentAsByteArray(),
+                contentType,
+                request.getCharacterEncoding(),
+                policy.getMaxBodyBytes());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return maxLength >= 0 && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    /** Reads the buffered response body, without copying more than the policy logs. */
+    private byte[] readContent(ContentCachingResponseWrapper response, int maxBodyBytes) {
+        if (maxBodyBytes < 0 || response.getContentSize() <= maxBodyBytes) {
+            return response.getContentAsByteArray();
+        }
+        byte[] content = new byte[maxBodyBytes];
+        try (InputStream inputStream = response.getContentInputStream()) {
+            int length = inputStream.readNBytes(content, 0, maxBodyBytes);
+            return length < maxBodyBytes ? Arrays.copyOf(content, length) : content;
+        } catch (IOException e) {
+            log.error("Cannot read response body", e);
+            return new byte[0];
         }
     }
 
-    private String buildPayload(byte[] content, String contentType, String contentEncoding) {
+    private String buildPayload(
+            byte[] content, String contentType, String contentEncoding, int maxBodyBytes) {
         StringBuilder contentBuilder = new StringBuilder();
         if (content != null && content.length > 0) {
             MediaType mediaType = MediaType.valueOf(contentType);
+            if (MediaType.MULTIPART_FORM_DATA.includes(mediaType)) {
+                return multipartPayloadScanner.scan(
+                        content, mediaType, toCharset(contentEncoding)).replaceAll("\"", "");
+            }
             boolean visible =
                     VISIBLE_TYPES.stream().anyMatch(visibleType -> visibleType.includes(mediaType));
             if (visible) {
+                int length =
+                        maxBodyBytes >= 0 ? Math.min(content.length, maxBodyBytes) : content.length;
                 try {
-                    String contentString = new String(content, contentEncoding);
+                    String contentString = new String(content, 0, length, contentEncoding);
                     Stream.of(contentString.split("\r\n|\r|\n")).forEach(contentBuilder::append);
                 } catch (UnsupportedEncodingException e) {
                     log.error("Unsupported encoding exception", e);
@@ -90,6 +259,70 @@ public class LoggingService {
         return contentBuilder.toString().replaceAll("\"", "");
     }
 
+    private TraceFields currentTraceFields() {
+        return traceFieldsEnabled ? TraceFields.current() : TraceFields.none();
+    }
+
+    private HttpLogEvent buildRequestEvent(HttpServletRequest request, boolean withHeaders) {
+        HttpLogEvent event = HttpLogEvent.request(request.getMethod(), request.getRequestURI());
+        if (!withHeaders) {
+            return event;
+        }
+        for (String headerName : WHITELIST_HEADER) {
+            String value = request.getHeader(headerName);
+            if (value != null) {
+                event.addHeader(headerName, value);
+            }
+        }
+        Enumeration<String> parameterNames = request.getParameterNames();
+        while (parameterNames.hasMoreElements()) {
+            String key = parameterNames.nextElement();
+            event.addParameter(key, request.getParameter(key));
+        }
+        return event;
+    }
+
+    private HttpLogEvent buildResponseEvent(
+            HttpServletRequest request, HttpServletResponse response, boolean withHeaders) {
+        HttpLogEvent event =
+                HttpLogEvent.response(
+                        request.getMethod(),
+                        request.getRequestURI(),
+                        response.getStatus(),
+                        durationMillis(request));
+        if (!withHeaders) {
+            return event;
+        }
+        for (String headerName : WHITELIST_HEADER) {
+            String value = response.getHeader(headerName);
+            if (value != null) {
+                event.addHeader(headerName, value);
+            }
+        }
+        return event;
+    }
+
+    /** Returns the time elapsed since the request started, or {@code -1} if unknown. */
+    private static long durationMillis(HttpServletRequest request) {
+        Object startNanos = request.getAttribute(START_NANOS_ATTRIBUTE);
+        if (startNanos instanceof Long) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (Long) startNanos);
+        }
+        return -1;
+    }
+
+    private Charset toCharset(String contentEncoding) {
+        if (contentEncoding == null) {
+            return StandardCharsets.ISO_8859_1;
+        }
+        try {
+            return Charset.forName(contentEncoding);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            log.error("Unsupported encoding exception", e);
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
     private Map<String, String> buildHeadersMap(HttpServletRequest request) {
         Map<String, String> map = new HashMap<>();
 
@@ -0,0 +1,38 @@
+package com.pccw.ruby.common.service;
+
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the parts of multipart requests for logging while they still exist.
+ *
+ * <p>{@code DispatcherServlet} has the multipart resolver delete the parts right after the
+ * handler completes, before the logging filter gets to log the request, and a deleted part
+ * reports a size of {@code 0}. Only requests already resolved into a {@link
+ * MultipartHttpServletRequest} are described, so that logging never makes the container read an
+ * upload the handler did not ask for. With lazy multipart resolution, the parts are parsed here
+ * if the handler did not access them.
+ */
+public class MultipartPartsInterceptor implements HandlerInterceptor {
+
+    private final LoggingService loggingService;
+
+    public MultipartPartsInterceptor(LoggingService loggingService) {
+        this.loggingService = loggingService;
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            Exception ex) {
+        if (WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class) != null) {
+            loggingService.recordMultipartParts(request);
+        }
+    }
+}
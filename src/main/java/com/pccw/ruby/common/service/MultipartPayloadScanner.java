@@ -0,0 +1,280 @@
+package com.pccw.ruby.common.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.Part;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Describes the parts of a multipart/form-data request without decoding the whole body.
+ *
+ * <p>When the container has parsed the request into {@link Part}s, which is the case with Spring
+ * Boot's default {@code StandardServletMultipartResolver}, the description is built from the part
+ * metadata and the text field values, while the parts still exist: the resolver deletes them
+ * once the handler has completed, see {@link MultipartPartsInterceptor}. Otherwise, the cached
+ * body is scanned in place: part
+ * boundaries are located directly on the byte array, so binary part contents are never copied or
+ * decoded. In both cases, only the headers of each part and, for text fields, at most {@code
+ * maxPartBytes} of the content are turned into strings.
+ */
+public class MultipartPayloadScanner {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private static final byte[] CLOSE_DELIMITER_SUFFIX = {'-', '-'};
+
+    private final List<MediaType> visibleTypes;
+
+    private final int maxPartBytes;
+
+    public MultipartPayloadScanner(List<MediaType> visibleTypes, int maxPartBytes) {
+        this.visibleTypes = visibleTypes;
+        this.maxPartBytes = maxPartBytes;
+    }
+
+    /**
+     * Builds a one-line description of every part parsed by the container.
+     *
+     * <p>Must only be called on requests whose parts have already been parsed, and before they
+     * are deleted, since {@link HttpServletRequest#getParts()} otherwise reads the whole body.
+     *
+     * @param request the multipart request
+     * @return the part descriptions, or {@code null} if the container has not parsed any part,
+     *     for instance because another multipart resolver has consumed the body
+     */
+    public String describeParts(HttpServletRequest request) {
+        Collection<Part> parts;
+        try {
+            parts = request.getParts();
+        } catch (IOException | ServletException | IllegalStateException e) {
+            return null;
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Part part : parts) {
+            String filename = part.getSubmittedFileName();
+            String contentType = part.getContentType();
+            String value = null;
+            if (filename == null && isVisible(parseMediaType(contentType))) {
+                value = request.getParameter(part.getName());
+            }
+            appendPart(
+                    builder,
+                    part.getName(),
+                    filename,
+                    contentType,
+                    part.getSize(),
+                    value == null ? null : truncate(value),
+                    false);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Builds a one-line description of every part in the given multipart body.
+     *
+     * @param content the cached request body, which may have been cut off by a cache limit
+     * @param mediaType the multipart media type carrying the boundary parameter
+     * @param defaultCharset the charset used for text fields without their own charset
+     * @return the part descriptions, or an empty string if the body cannot be scanned
+     */
+    public String scan(byte[] content, MediaType mediaType, Charset defaultCharset) {
+        String boundary = mediaType.getParameter("boundary");
+        if (!StringUtils.hasText(boundary)) {
+            return "";
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        // every delimiter but a leading one is preceded by CRLF, which belongs to the delimiter
+        byte[] delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        int firstDelimiterLength = delimiter.length - CRLF.length;
+
+        StringBuilder builder = new StringBuilder();
+        int position;
+        int cursor;
+        if (startsWith(content, 0, delimiter, CRLF.length, firstDelimiterLength)) {
+            position = 0;
+            cursor = firstDelimiterLength;
+        } else {
+            position = indexOf(content, delimiter, 0);
+            cursor = position + delimiter.length;
+        }
+        while (position >= 0) {
+            if (startsWith(content, cursor, CLOSE_DELIMITER_SUFFIX)) {
+                break;
+            }
+            // the delimiter line may carry transport padding before its CRLF
+            while (cursor < content.length
+                    && (content[cursor] == ' ' || content[cursor] == '\t')) {
+                cursor++;
+            }
+            if (!startsWith(content, cursor, CRLF)) {
+                break;
+            }
+            cursor += CRLF.length;
+            int headerEnd = indexOf(content, HEADER_END, cursor);
+            if (headerEnd < 0) {
+                break;
+            }
+            int bodyStart = headerEnd + HEADER_END.length;
+            int next = indexOf(content, delimiter, bodyStart);
+            int bodyEnd = next < 0 ? content.length : next;
+
+            String headers =
+                    new String(content, cursor, headerEnd - cursor, StandardCharsets.ISO_8859_1);
+            appendScannedPart(
+                    builder, headers, content, bodyStart, bodyEnd, next < 0, defaultCharset);
+            position = next;
+            cursor = next + delimiter.length;
+        }
+        return builder.toString();
+    }
+
+    private void appendScannedPart(
+            StringBuilder builder,
+            String headers,
+            byte[] content,
+            int bodyStart,
+            int bodyEnd,
+            boolean truncated,
+            Charset defaultCharset) {
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        for (String header : headers.split("\r\n")) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String headerName = header.substring(0, colon).trim();
+            String headerValue = header.substring(colon + 1).trim();
+            if ("Content-Disposition".equalsIgnoreCase(headerName)) {
+                name = dispositionParameter(headerValue, "name");
+                filename = dispositionParameter(headerValue, "filename");
+            } else if ("Content-Type".equalsIgnoreCase(headerName)) {
+                contentType = headerValue;
+            }
+        }
+
+        int size = bodyEnd - bodyStart;
+        String value = null;
+        MediaType partType = parseMediaType(contentType);
+        if (filename == null && isVisible(partType)) {
+            Charset charset = defaultCharset;
+            if (partType != null && partType.getCharset() != null) {
+                charset = partType.getCharset();
+            }
+            int length = Math.min(size, maxPartBytes);
+            value = new String(content, bodyStart, length, charset);
+            if (length < size) {
+                value += "...";
+            }
+        }
+        appendPart(builder, name, filename, contentType, size, value, truncated);
+    }
+
+    private static void appendPart(
+            StringBuilder builder,
+            String name,
+            String filename,
+            String contentType,
+            long size,
+            String value,
+            boolean truncated) {
+        if (builder.length() > 0) {
+            builder.append(", ");
+        }
+        builder.append("[name=").append(name);
+        if (filename != null) {
+            builder.append(", filename=").append(filename);
+        }
+        if (contentType != null) {
+            builder.append(", contentType=").append(contentType);
+        }
+        builder.append(", size=").append(size);
+        if (truncated) {
+            builder.append(", truncated=true");
+        }
+        if (value != null) {
+            builder.append(", value=").append(value);
+        }
+        builder.append(']');
+    }
+
+    private String truncate(String value) {
+        return value.length() > maxPartBytes ? value.substring(0, maxPartBytes) + "..." : value;
+    }
+
+    private boolean isVisible(MediaType partType) {
+        if (partType == null) {
+            return true;
+        }
+        return !MediaType.MULTIPART_FORM_DATA.includes(partType)
+                && visibleTypes.stream().anyMatch(visibleType -> visibleType.includes(partType));
+    }
+
+    private static MediaType parseMediaType(String contentType) {
+        if (!StringUtils.hasText(contentType)) {
+            return null;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private static String dispositionParameter(String disposition, String parameter) {
+        for (String token : disposition.split(";")) {
+            String trimmed = token.trim();
+            int equals = trimmed.indexOf('=');
+            if (equals > 0 && parameter.equalsIgnoreCase(trimmed.substring(0, equals).trim())) {
+                String value = trimmed.substring(equals + 1).trim();
+                if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] content, int offset, byte[] prefix) {
+        return startsWith(content, offset, prefix, 0, prefix.length);
+    }
+
+    private static boolean startsWith(
+            byte[] content, int offset, byte[] prefix, int prefixOffset, int length) {
+        if (offset < 0 || offset + length > content.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (content[offset + i] != prefix[prefixOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] content, byte[] target, int fromIndex) {
+        int last = content.length - target.length;
+        for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+            if (content[i] == target[0] && startsWith(content, i, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pccw.ruby.common.service;
+
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.logstash.logback.argument.StructuredArgument;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+
+/**
+ * Writes the trace and span IDs of the current span as structured log fields.
+ *
+ * <p>The IDs are read straight from Brave's current trace context rather than from the MDC, so
+ * the library's own log events stay correlated when Sleuth's MDC correlation is turned off. The
+ * field names match the MDC keys, so the JSON output keeps the same shape; when a service turns
+ * MDC correlation back on, the IDs are left to the MDC and not written twice.
+ *
+ * <p>Both instances are shared and read the context when the event is encoded, so that logging
+ * does not allocate. The fields are therefore only written by synchronous appenders, which
+ * encode on the logging thread.
+ */
+public final class TraceFields implements StructuredArgument {
+
+    public static final String TRACE_ID = "traceId";
+
+    public static final String SPAN_ID = "spanId";
+
+    private static final TraceFields CURRENT = new TraceFields(true);
+
+    private static final TraceFields NONE = new TraceFields(false);
+
+    private final boolean enabled;
+
+    private TraceFields(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Returns fields that write the IDs of the span current when the event is encoded. */
+    public static TraceFields current() {
+        return CURRENT;
+    }
+
+    /** Returns fields that write nothing, for when trace fields are disabled. */
+    public static TraceFields none() {
+        return NONE;
+    }
+
+    @Override
+    public void writeTo(JsonGenerator generator) throws IOException {
+        TraceContext context = uncorrelatedContext();
+        if (context != null) {
+            generator.writeStringField(TRACE_ID, context.traceIdString());
+            generator.writeStringField(SPAN_ID, context.spanIdString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        TraceContext context = uncorrelatedContext();
+        if (context == null) {
+            return "";
+        }
+        return TRACE_ID
+                + "="
+                + context.traceIdString()
+                + ", "
+                + SPAN_ID
+                + "="
+                + context.spanIdString();
+    }
+
+    /** Returns the current trace context, unless there is none or the MDC already carries it. */
+    private TraceContext uncorrelatedContext() {
+        if (!enabled || MDC.get(TRACE_ID) != null) {
+            return null;
+        }
+        Tracing tracing = Tracing.current();
+        return tracing == null ? null : tracing.currentTraceContext().get();
+    }
+}
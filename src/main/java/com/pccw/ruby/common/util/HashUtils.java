@@ -0,0 +1,53 @@
+package com.pccw.ruby.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public final class HashUtils {
+
+    private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private HashUtils() {}
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the given bytes.
+     *
+     * <p>This is a fast non-cryptographic hash, suitable for cache validators and keys but not
+     * for anything security related.
+     *
+     * @param content the bytes to hash
+     * @return the hash value
+     */
+    public static long fnv1a64(byte[] content) {
+        return update(FNV_64_OFFSET_BASIS, content, 0, content.length);
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the remaining bytes of the given stream.
+     *
+     * @param inputStream the stream to hash, which is not closed
+     * @return the hash value
+     * @throws IOException if the stream cannot be read
+     */
+    public static long fnv1a64(InputStream inputStream) throws IOException {
+        long hash = FNV_64_OFFSET_BASIS;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            hash = update(hash, buffer, 0, read);
+        }
+        return hash;
+    }
+
+    private static long update(long hash, byte[] content, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= (content[i] & 0xff);
+            hash *= FNV_64_PRIME;
+        }
+        return hash;
+    }
+}
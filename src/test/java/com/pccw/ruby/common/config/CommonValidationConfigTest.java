@@ -0,0 +1,76 @@
+package com.pccw.ruby.common.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommonValidationConfigTest {
+
+    private final ApplicationContextRunner contextRunner =
+            new ApplicationContextRunner()
+                    .withConfiguration(
+                            AutoConfigurations.of(
+                                    ValidationAutoConfiguration.class,
+                                    CommonValidationConfig.class));
+
+    @Test
+    void replacesDefaultValidatorWhenFailFast() {
+        contextRunner
+                .withPropertyValues("logging.com.pccw.ruby.common.validation.fail-fast=true")
+                .run(
+                        context -> {
+                            assertThat(context).hasSingleBean(Validator.class);
+                            assertThat(context).hasBean("defaultValidator");
+                            assertThat(context.getBean(Validator.class).validate(new Payload()))
+                                    .hasSize(1);
+                        });
+    }
+
+    @Test
+    void keepsBootValidatorByDefault() {
+        contextRunner.run(
+                context -> {
+                    assertThat(context).hasSingleBean(Validator.class);
+                    assertThat(context.getBean(Validator.class).validate(new Payload()))
+                            .hasSize(2);
+                });
+    }
+
+    @Test
+    void backsOffForServiceValidator() {
+        contextRunner
+                .withPropertyValues("logging.com.pccw.ruby.common.validation.fail-fast=true")
+                .withUserConfiguration(ServiceValidatorConfig.class)
+                .run(
+                        context -> {
+                            assertThat(context).hasSingleBean(Validator.class);
+                            assertThat(context).hasBean("serviceValidator");
+                        });
+    }
+
+    @Configuration
+    static class ServiceValidatorConfig {
+
+        @Bean
+        LocalValidatorFactoryBean serviceValidator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    static class Payload {
+
+        @NotNull private String name;
+
+        @Size(min = 1) private String code = "";
+    }
+}
@@ -0,0 +1,103 @@
+package com.pccw.ruby.common.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(80);
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(10, 0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(10, 10, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsRequestsBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(FAST_NANOS);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void steadyMixedLatencyDoesNotCollapseLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200);
+        Random random = new Random(42);
+
+        runSaturated(limiter, 200, () -> random.nextInt(4) == 0 ? SLOW_NANOS : FAST_NANOS);
+
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesUnderLoad() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 4, 200);
+        runSaturated(limiter, 5, () -> FAST_NANOS);
+        int limitBefore = limiter.getLimit();
+
+        runSaturated(limiter, 5, () -> FAST_NANOS * 10);
+
+        assertThat(limiter.getLimit()).isLessThan(limitBefore);
+    }
+
+    @Test
+    void keepsLimitWhenWellBelowIt() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 4, 200);
+        runSequential(limiter, 5, () -> FAST_NANOS);
+
+        runSequential(limiter, 20, () -> FAST_NANOS * 10);
+
+        assertThat(limiter.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    void growsBackFromMinimumOnceLatencyRecovers() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 4, 200);
+        runSaturated(limiter, 5, () -> FAST_NANOS * 10);
+
+        runSaturated(limiter, 100, () -> FAST_NANOS);
+
+        assertThat(limiter.getLimit()).isGreaterThan(4);
+    }
+
+    /** Keeps the limiter full, releasing every permit of a batch once it cannot take more. */
+    private static void runSaturated(
+            AdaptiveConcurrencyLimiter limiter, int windows, LongSupplier rttNanos) {
+        int released = 0;
+        while (released < windows * 100) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rttNanos.getAsLong());
+            }
+            released += acquired;
+        }
+    }
+
+    private static void runSequential(
+            AdaptiveConcurrencyLimiter limiter, int windows, LongSupplier rttNanos) {
+        for (int i = 0; i < windows * 100; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.release(rttNanos.getAsLong());
+        }
+    }
+}
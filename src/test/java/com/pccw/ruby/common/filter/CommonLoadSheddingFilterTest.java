@@ -0,0 +1,86 @@
+package com.pccw.ruby.common.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pccw.ruby.common.enums.ErrorCode;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommonLoadSheddingFilterTest {
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+
+    private final CommonLoadSheddingFilter filter =
+            new CommonLoadSheddingFilter(
+                    Collections.emptyMap(),
+                    limiter,
+                    Collections.emptyList(),
+                    5,
+                    new ObjectMapper());
+
+    @Test
+    void countsRejectedRequestsInStatistics() throws Exception {
+        RequestStatistics statistics = new RequestStatistics(10);
+        filter.setRequestStatistics(statistics);
+        limiter.tryAcquire();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(
+                new MockHttpServletRequest("GET", "/orders"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(statistics.getRejectedCount()).isEqualTo(1);
+        assertThat(statistics.getErrorCounts()).containsEntry(ErrorCode.SERVICE_UNAVAILABLE, 1L);
+    }
+
+    @Test
+    void releasesPermitWhenRequestCompletes() throws Exception {
+        filter.doFilter(
+                new MockHttpServletRequest("GET", "/orders"),
+                new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void releasesPermitOfAsyncRequestWhenAsyncProcessingCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+
+        request.getAsyncContext().complete();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void releasesPermitOfAsyncRequestOnlyOnce() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        asyncContext.complete();
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+}
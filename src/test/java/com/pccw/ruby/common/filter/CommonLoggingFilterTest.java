@@ -0,0 +1,339 @@
+package com.pccw.ruby.common.filter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.pccw.ruby.common.enums.LoggingMode;
+import com.pccw.ruby.common.monitor.RequestStatistics;
+import com.pccw.ruby.common.service.LoggingPolicy;
+import com.pccw.ruby.common.service.LoggingPolicyRegistry;
+import com.pccw.ruby.common.service.LoggingService;
+import com.pccw.ruby.common.service.MultipartPartsInterceptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.support.StandardMultipartHttpServletRequest;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommonLoggingFilterTest {
+
+    private static final byte[] BODY =
+            "{\"items\":[1,2,3,4,5,6,7,8,9,10]}".getBytes(StandardCharsets.UTF_8);
+
+    private final Logger serviceLogger = (Logger) LoggerFactory.getLogger(LoggingService.class);
+
+    private final LoggingService loggingService = new LoggingService();
+
+    private final CommonLoggingFilter filter =
+            new CommonLoggingFilter(
+                    Collections.singletonList("/actuator/health"), loggingService);
+
+    private final RecordingChain chain = new RecordingChain();
+
+    private final ListAppender<ILoggingEvent> logEvents = new ListAppender<>();
+
+    private Level previousLevel;
+
+    @BeforeEach
+    void setUp() {
+        previousLevel = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.INFO);
+        serviceLogger.addAppender(logEvents);
+        logEvents.start();
+
+        Map<String, LoggingPolicy> policies = new LinkedHashMap<>();
+        policies.put("/quiet/**", new LoggingPolicy(LoggingMode.OFF, 1.0, -1));
+        policies.put("/bodies/**", new LoggingPolicy(LoggingMode.BODY, 1.0, 8));
+        policies.put("/uploads/**", new LoggingPolicy(LoggingMode.BODY, 1.0, 1024));
+        policies.put("/meta/**", new LoggingPolicy(LoggingMode.METADATA, 1.0, 0));
+        filter.setLoggingPolicyRegistry(new LoggingPolicyRegistry(policies));
+    }
+
+    @AfterEach
+    void tearDown() {
+        serviceLogger.setLevel(previousLevel);
+        serviceLogger.detachAppender(logEvents);
+    }
+
+    @Test
+    void doesNotWrapRoutesWithLoggingOff() throws Exception {
+        MockHttpServletResponse response = execute(post("/quiet/items"));
+
+        assertThat(chain.request).isNotInstanceOf(ContentCachingRequestWrapper.class);
+        assertThat(chain.response).isNotInstanceOf(ContentCachingResponseWrapper.class);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void wrapsRoutesWithLoggingOffWhenCompressing() throws Exception {
+        filter.setResponseCompressor(
+                new ResponseCompressor(
+                        1024,
+                        Collections.singletonList(MediaType.APPLICATION_JSON),
+                        6,
+                        1,
+                        0,
+                        0,
+                        null));
+
+        execute(post("/quiet/items"));
+
+        assertThat(chain.response).isInstanceOf(ContentCachingResponseWrapper.class);
+    }
+
+    @Test
+    void boundsRequestCacheToLoggedBytes() throws Exception {
+        MockHttpServletResponse response = execute(post("/bodies/items"));
+
+        assertThat(chain.requestBody).isEqualTo(BODY);
+        assertThat(((ContentCachingRequestWrapper) chain.request).getContentAsByteArray())
+                .hasSize(8);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void doesNotCacheRequestBodiesThatAreNotLogged() throws Exception {
+        execute(post("/api/items"));
+
+        assertThat(chain.requestBody).isEqualTo(BODY);
+        assertThat(((ContentCachingRequestWrapper) chain.request).getContentAsByteArray())
+                .isEmpty();
+    }
+
+    @Test
+    void cachesRequestBodiesLoggedAtDebug() throws Exception {
+        serviceLogger.setLevel(Level.DEBUG);
+
+        execute(post("/api/items"));
+
+        assertThat(((ContentCachingRequestWrapper) chain.request).getContentAsByteArray())
+                .isEqualTo(BODY);
+    }
+
+    @Test
+    void callsHooksOverriddenBySubclasses() throws Exception {
+        List<String> calls = new ArrayList<>();
+        CommonLoggingFilter subclass =
+                new CommonLoggingFilter(Collections.emptyList(), loggingService) {
+
+                    @Override
+                    protected void doFilterWrapped(
+                            ContentCachingRequestWrapper request,
+                            ContentCachingResponseWrapper response,
+                            FilterChain filterChain)
+                            throws ServletException, IOException {
+                        calls.add("doFilterWrapped");
+                        super.doFilterWrapped(request, response, filterChain);
+                    }
+
+                    @Override
+                    protected void afterRequest(
+                            ContentCachingRequestWrapper request,
+                            ContentCachingResponseWrapper response) {
+                        calls.add("afterRequest " + getLoggingPolicy(request).getMode());
+                        super.afterRequest(request, response);
+                    }
+                };
+
+        subclass.doFilter(post("/api/items"), new MockHttpServletResponse(), chain);
+
+        assertThat(calls).containsExactly("doFilterWrapped", "afterRequest HEADERS");
+    }
+
+    @Test
+    void logsStatusAndDurationOfMetadataResponses() throws Exception {
+        execute(post("/meta/items"));
+
+        assertThat(logEvents.list)
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .hasSize(2)
+                .first()
+                .isEqualTo("REQUEST method=POST, path=/meta/items");
+        assertThat(logEvents.list.get(1).getFormattedMessage())
+                .matches("RESPONSE method=POST, path=/meta/items, status=200, durationMs=\\d+");
+    }
+
+    @Test
+    void accountsForBodiesWhileHandlerRuns() throws Exception {
+        RequestStatistics statistics = new RequestStatistics(10);
+        filter.setRequestStatistics(statistics);
+        List<Long> duringHandler = new ArrayList<>();
+
+        filter.doFilter(
+                post("/bodies/items"),
+                new MockHttpServletResponse(),
+                (req, res) -> {
+                    chain.doFilter(req, res);
+                    duringHandler.add(statistics.getCurrentCapturedBytes());
+                });
+
+        // the request cache holds the 8 bytes the policy logs, the response buffer the whole body
+        assertThat(duringHandler).containsExactly(8L + BODY.length);
+        assertThat(statistics.getCurrentCapturedBytes()).isZero();
+        assertThat(statistics.getMaxCapturedBytes()).isEqualTo(8L + BODY.length);
+    }
+
+    @Test
+    void matchesIfNoneMatchWithWeakComparison() {
+        String eTag = "W/\"1a2b\"";
+
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch("W/\"1a2b\"", eTag)).isTrue();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch("\"1a2b\"", eTag)).isTrue();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch("\"ffff\", W/\"1a2b\"", eTag))
+                .isTrue();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch("*", eTag)).isTrue();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch("W/\"1a2c\"", eTag)).isFalse();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch("\"ffff\", \"eeee\"", eTag))
+                .isFalse();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch(null, eTag)).isFalse();
+        assertThat(CommonLoggingFilter.matchesIfNoneMatch(" ", eTag)).isFalse();
+    }
+
+    @Test
+    void answersMatchingConditionalGetWithNotModified() throws Exception {
+        filter.setEtagUrlPatterns(Collections.singletonList("/api/**"));
+        MockHttpServletResponse first = execute(get("/api/items"));
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest conditional = get("/api/items");
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        MockHttpServletResponse second = execute(conditional);
+
+        assertThat(first.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(first.getContentAsByteArray()).isEqualTo(BODY);
+        assertThat(eTag).startsWith("W/\"");
+        assertThat(second.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(second.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+        assertThat(second.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void sendsBodyWhenConditionalGetDoesNotMatch() throws Exception {
+        filter.setEtagUrlPatterns(Collections.singletonList("/api/**"));
+        MockHttpServletRequest conditional = get("/api/items");
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"0\"");
+
+        MockHttpServletResponse response = execute(conditional);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void tagsOnlyGetRequests() throws Exception {
+        filter.setEtagUrlPatterns(Collections.singletonList("/api/**"));
+        MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/api/items");
+        head.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+
+        assertThat(execute(post("/api/items")).getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(execute(head).getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(execute(get("/other/items")).getHeader(HttpHeaders.ETAG)).isNull();
+    }
+
+    @Test
+    void logsSizesOfMultipartPartsDeletedAfterHandler() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/uploads/files");
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=XyZ");
+        request.addPart(
+                new MockPart("file", "a.bin", new byte[5000]) {
+
+                    private boolean deleted;
+
+                    @Override
+                    public long getSize() {
+                        return deleted ? 0 : super.getSize();
+                    }
+
+                    @Override
+                    public void delete() {
+                        deleted = true;
+                    }
+                });
+        MultipartPartsInterceptor interceptor = new MultipartPartsInterceptor(loggingService);
+
+        // mirrors DispatcherServlet, which cleans up the parts after the interceptors complete
+        filter.doFilter(
+                request,
+                new MockHttpServletResponse(),
+                (req, res) -> {
+                    HttpServletRequest multipart =
+                            new StandardMultipartHttpServletRequest((HttpServletRequest) req);
+                    interceptor.afterCompletion(
+                            multipart, (HttpServletResponse) res, new Object(), null);
+                    for (Part part : multipart.getParts()) {
+                        part.delete();
+                    }
+                });
+
+        assertThat(logEvents.list)
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .contains("REQUEST body=[name=file, filename=a.bin, size=5000]");
+    }
+
+    private MockHttpServletResponse execute(MockHttpServletRequest request)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String path) {
+        return withBody(new MockHttpServletRequest("GET", path));
+    }
+
+    private static MockHttpServletRequest post(String path) {
+        return withBody(new MockHttpServletRequest("POST", path));
+    }
+
+    private static MockHttpServletRequest withBody(MockHttpServletRequest request) {
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(BODY);
+        return request;
+    }
+
+    /** Echoes the request body back as the response body. */
+    private static final class RecordingChain implements FilterChain {
+
+        private ServletRequest request;
+
+        private ServletResponse response;
+
+        private byte[] requestBody;
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response)
+                throws IOException {
+            this.request = request;
+            this.response = response;
+            this.requestBody = StreamUtils.copyToByteArray(request.getInputStream());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(requestBody);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.pccw.ruby.common.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountingRequestWrapperTest {
+
+    @Test
+    void countsBytesReadThroughInputStream() throws IOException {
+        CountingRequestWrapper request = new CountingRequestWrapper(requestWithBody(1000));
+
+        assertThat(request.getCachedBytes()).isZero();
+        request.getInputStream().read();
+        StreamUtils.copyToByteArray(request.getInputStream());
+
+        assertThat(request.getCachedBytes()).isEqualTo(1000);
+        assertThat(request.getContentAsByteArray()).hasSize(1000);
+    }
+
+    @Test
+    void boundsCountByCacheLimit() throws IOException {
+        CountingRequestWrapper request = new CountingRequestWrapper(requestWithBody(1000), 100);
+
+        StreamUtils.copyToByteArray(request.getInputStream());
+
+        assertThat(request.getCachedBytes()).isEqualTo(100);
+        assertThat(request.getContentAsByteArray()).hasSize(100);
+    }
+
+    @Test
+    void reportsBytesAddedToCacheAsTheyAreRead() throws IOException {
+        CountingRequestWrapper request = new CountingRequestWrapper(requestWithBody(1000), 100);
+        List<Long> captured = new ArrayList<>();
+        request.setCaptureListener(captured::add);
+
+        request.getInputStream().read(new byte[60]);
+        request.getInputStream().read();
+        StreamUtils.copyToByteArray(request.getInputStream());
+
+        assertThat(captured).containsExactly(60L, 1L, 39L);
+    }
+
+    private static MockHttpServletRequest requestWithBody(int size) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/items");
+        request.setContent(new byte[size]);
+        return request;
+    }
+}
@@ -0,0 +1,50 @@
+package com.pccw.ruby.common.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountingResponseWrapperTest {
+
+    private final MockHttpServletResponse rawResponse = new MockHttpServletResponse();
+
+    private final CountingResponseWrapper response = new CountingResponseWrapper(rawResponse);
+
+    private final AtomicLong captured = new AtomicLong();
+
+    @Test
+    void reportsBytesWrittenToOutputStream() throws IOException {
+        response.setCaptureListener(captured::addAndGet);
+
+        response.getOutputStream().write(new byte[100]);
+        assertThat(captured).hasValue(100);
+        response.getOutputStream().write(1);
+        assertThat(captured).hasValue(101);
+
+        response.copyBodyToResponse();
+        assertThat(rawResponse.getContentAsByteArray()).hasSize(101);
+    }
+
+    @Test
+    void reportsBytesWrittenToWriter() throws IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setCaptureListener(captured::addAndGet);
+
+        response.getWriter().write("héllo");
+
+        assertThat(captured).hasValue(6);
+        assertThat(response.getContentSize()).isEqualTo(6);
+    }
+
+    @Test
+    void keepsBaseStreamsWithoutListener() throws IOException {
+        response.getOutputStream().write(new byte[10]);
+
+        assertThat(captured).hasValue(0);
+        assertThat(response.getContentSize()).isEqualTo(10);
+    }
+}
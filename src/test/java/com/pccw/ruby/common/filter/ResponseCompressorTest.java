@@ -0,0 +1,156 @@
+package com.pccw.ruby.common.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressorTest {
+
+    private static final byte[] BODY = repeat("{\"name\":\"value\"},", 500);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void selectsEncodingFromAcceptEncoding() {
+        assertThat(ResponseCompressor.selectEncoding(null)).isNull();
+        assertThat(ResponseCompressor.selectEncoding("")).isNull();
+        assertThat(ResponseCompressor.selectEncoding("br, identity")).isNull();
+        assertThat(ResponseCompressor.selectEncoding("gzip")).isEqualTo("gzip");
+        assertThat(ResponseCompressor.selectEncoding("deflate, gzip")).isEqualTo("gzip");
+        assertThat(ResponseCompressor.selectEncoding("GZIP;q=0.5")).isEqualTo("gzip");
+        assertThat(ResponseCompressor.selectEncoding("deflate")).isEqualTo("deflate");
+        assertThat(ResponseCompressor.selectEncoding("gzip;q=0, deflate")).isEqualTo("deflate");
+        assertThat(ResponseCompressor.selectEncoding("gzip; q=0.0")).isNull();
+        assertThat(ResponseCompressor.selectEncoding("*")).isEqualTo("gzip");
+    }
+
+    @Test
+    void gzipRoundTrip() throws IOException {
+        MockHttpServletResponse response = compress(compressor(0), "gzip", BODY);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+        assertThat(response.getContentAsByteArray().length).isLessThan(BODY.length);
+        assertThat(inflate(new GZIPInputStream(content(response)))).isEqualTo(BODY);
+    }
+
+    @Test
+    void deflateRoundTrip() throws IOException {
+        MockHttpServletResponse response = compress(compressor(0), "deflate", BODY);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("deflate");
+        assertThat(inflate(new InflaterInputStream(content(response)))).isEqualTo(BODY);
+    }
+
+    @Test
+    void streamsBodiesSpanningManyBuffers() throws IOException {
+        byte[] body = repeat("{\"id\":12345,\"name\":\"value\"},", 10_000);
+
+        MockHttpServletResponse response = compress(compressor(0), "gzip", body);
+
+        assertThat(inflate(new GZIPInputStream(content(response)))).isEqualTo(body);
+    }
+
+    @Test
+    void pooledDeflatersProduceIndependentOutputs() throws IOException {
+        ResponseCompressor compressor = compressor(0);
+        byte[] other = repeat("<item>other</item>", 300);
+
+        compress(compressor, "gzip", BODY);
+        MockHttpServletResponse response = compress(compressor, "gzip", other);
+
+        assertThat(inflate(new GZIPInputStream(content(response)))).isEqualTo(other);
+    }
+
+    @Test
+    void varyIsSetWhenClientDoesNotAcceptCompression() throws IOException {
+        MockHttpServletResponse response = compress(compressor(0), null, BODY);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeaders(HttpHeaders.VARY))
+                .containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void skipsSmallBodies() throws IOException {
+        MockHttpServletResponse response = compress(compressor(0), "gzip", new byte[10]);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.VARY)).isNull();
+    }
+
+    @Test
+    void cachesBodiesOnlyOnceSeenAgain() throws IOException {
+        ResponseCompressor compressor = compressor(16);
+
+        for (int i = 0; i < 4; i++) {
+            MockHttpServletResponse response = compress(compressor, "gzip", BODY);
+            assertThat(inflate(new GZIPInputStream(content(response)))).isEqualTo(BODY);
+        }
+
+        assertThat(meterRegistry.timer("common.response.compression.cpu").count()).isEqualTo(2);
+    }
+
+    private ResponseCompressor compressor(int cacheEntries) {
+        return new ResponseCompressor(
+                1024,
+                Collections.singletonList(MediaType.APPLICATION_JSON),
+                6,
+                2,
+                cacheEntries,
+                1024 * 1024,
+                meterRegistry);
+    }
+
+    private static MockHttpServletResponse compress(
+            ResponseCompressor compressor, String acceptEncoding, byte[] body)
+            throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockHttpServletResponse rawResponse = new MockHttpServletResponse();
+        ContentCachingResponseWrapper response = new ContentCachingResponseWrapper(rawResponse);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(body);
+        if (!compressor.compress(request, response)) {
+            response.copyBodyToResponse();
+        }
+        return rawResponse;
+    }
+
+    private static InputStream content(MockHttpServletResponse response) {
+        return new ByteArrayInputStream(response.getContentAsByteArray());
+    }
+
+    private static byte[] inflate(InputStream inputStream) throws IOException {
+        try (InputStream input = inputStream) {
+            return StreamUtils.copyToByteArray(input);
+        }
+    }
+
+    private static byte[] repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
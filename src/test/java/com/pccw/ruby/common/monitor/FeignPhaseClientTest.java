@@ -0,0 +1,89 @@
+package com.pccw.ruby.common.monitor;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeignPhaseClientTest {
+
+    private static final Request REQUEST =
+            Request.create(
+                    Request.HttpMethod.GET,
+                    "http://upstream/items",
+                    Collections.emptyMap(),
+                    null,
+                    StandardCharsets.UTF_8,
+                    null);
+
+    private final RequestTrace trace = new RequestTrace("GET", "/items", Thread.currentThread());
+
+    @AfterEach
+    void clearTrace() {
+        RequestTraceHolder.clear();
+    }
+
+    @Test
+    void recordsErrorResponses() throws IOException {
+        RequestTraceHolder.set(trace);
+        Client client = new FeignPhaseClient((request, options) -> respond(500));
+
+        client.execute(REQUEST, new Request.Options());
+
+        assertThat(trace.getFeignCalls()).isEqualTo(1);
+        assertThat(trace.getFeignNanos()).isPositive();
+    }
+
+    @Test
+    void recordsFailedCalls() {
+        RequestTraceHolder.set(trace);
+        Client client =
+                new FeignPhaseClient(
+                        (request, options) -> {
+                            throw new SocketTimeoutException("Read timed out");
+                        });
+
+        assertThatThrownBy(() -> client.execute(REQUEST, new Request.Options()))
+                .isInstanceOf(SocketTimeoutException.class);
+        assertThatThrownBy(() -> client.execute(REQUEST, new Request.Options()))
+                .isInstanceOf(SocketTimeoutException.class);
+
+        assertThat(trace.getFeignCalls()).isEqualTo(2);
+        assertThat(trace.getFeignNanos()).isPositive();
+    }
+
+    @Test
+    void ignoresCallsOutsideRequests() throws IOException {
+        Client client = new FeignPhaseClient((request, options) -> respond(200));
+
+        assertThat(client.execute(REQUEST, new Request.Options()).status()).isEqualTo(200);
+        assertThat(trace.getFeignCalls()).isZero();
+    }
+
+    @Test
+    void capabilityWrapsClientOnce() {
+        FeignPhaseCapability capability = new FeignPhaseCapability();
+        Client delegate = (request, options) -> respond(200);
+        Client client = capability.enrich(delegate);
+
+        assertThat(client).isInstanceOf(FeignPhaseClient.class);
+        assertThat(capability.enrich(client)).isSameAs(client);
+    }
+
+    private static Response respond(int status) {
+        return Response.builder()
+                .status(status)
+                .request(REQUEST)
+                .headers(Collections.emptyMap())
+                .build();
+    }
+}
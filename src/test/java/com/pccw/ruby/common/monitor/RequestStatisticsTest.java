@@ -0,0 +1,85 @@
+package com.pccw.ruby.common.monitor;
+
+import com.pccw.ruby.common.enums.ErrorCode;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestStatisticsTest {
+
+    private final RequestStatistics statistics = new RequestStatistics(2);
+
+    @Test
+    void tracksBodiesHeldByInFlightRequests() {
+        RequestTrace first = start("/a");
+        RequestTrace second = start("/b");
+
+        capture(first, 100);
+        capture(second, 300);
+        assertThat(statistics.getCurrentCapturedBytes()).isEqualTo(400);
+        assertThat(statistics.getInFlightRequests()).hasSize(2);
+
+        complete(first, "GET /a");
+        assertThat(statistics.getCurrentCapturedBytes()).isEqualTo(300);
+        assertThat(statistics.getMaxCapturedBytes()).isEqualTo(300);
+
+        complete(second, "GET /b");
+        assertThat(statistics.getCurrentCapturedBytes()).isZero();
+        assertThat(statistics.getInFlightRequests()).isEmpty();
+    }
+
+    @Test
+    void completesRequestsWithoutCapturedBodies() {
+        RequestTrace trace = start("/a");
+
+        complete(trace, "GET /a");
+
+        assertThat(statistics.getCurrentCapturedBytes()).isZero();
+    }
+
+    @Test
+    void foldsRoutesBeyondLimitIntoOther() {
+        complete(start("/a"), "GET /a");
+        complete(start("/b"), "GET /b");
+        complete(start("/c"), "GET /c");
+        complete(start("/d"), "GET /d");
+
+        assertThat(statistics.getRouteHistograms())
+                .containsOnlyKeys("GET /a", "GET /b", RequestStatistics.OTHER_ROUTE);
+        Histogram other = statistics.getRouteHistograms().get(RequestStatistics.OTHER_ROUTE);
+        assertThat(other.getTotalCount()).isEqualTo(2);
+    }
+
+    @Test
+    void countsErrors() {
+        statistics.recordError(ErrorCode.SERVICE_UNAVAILABLE);
+        statistics.recordError(ErrorCode.SERVICE_UNAVAILABLE);
+
+        assertThat(statistics.getErrorCounts()).containsEntry(ErrorCode.SERVICE_UNAVAILABLE, 2L);
+    }
+
+    @Test
+    void countsRejectionsAsUnavailable() {
+        statistics.recordRejection();
+
+        assertThat(statistics.getRejectedCount()).isEqualTo(1);
+        assertThat(statistics.getErrorCounts()).containsEntry(ErrorCode.SERVICE_UNAVAILABLE, 1L);
+    }
+
+    private RequestTrace start(String path) {
+        RequestTrace trace = new RequestTrace("GET", path, Thread.currentThread());
+        statistics.start(trace);
+        return trace;
+    }
+
+    private void capture(RequestTrace trace, long bytes) {
+        statistics.capture(trace, bytes / 2);
+        statistics.capture(trace, bytes - bytes / 2);
+    }
+
+    private void complete(RequestTrace trace, String route) {
+        trace.markEnd();
+        statistics.complete(trace, route);
+    }
+}
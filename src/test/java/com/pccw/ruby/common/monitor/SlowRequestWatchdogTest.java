@@ -0,0 +1,100 @@
+package com.pccw.ruby.common.monitor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlowRequestWatchdogTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private SlowRequestWatchdog watchdog;
+
+    private Thread requestThread;
+
+    @BeforeEach
+    void setUp() {
+        watchdog = new SlowRequestWatchdog(50, 20, 3, 5, 8);
+        watchdog.start();
+        requestThread =
+                new Thread(
+                        () -> {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        requestThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        requestThread.join();
+        watchdog.close();
+    }
+
+    @Test
+    void rejectsInvalidWheel() {
+        assertThatThrownBy(() -> new SlowRequestWatchdog(50, 20, 3, 0, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlowRequestWatchdog(50, 20, 3, 5, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void samplesRequestsRunningPastThreshold() throws InterruptedException {
+        RequestTrace trace = new RequestTrace("GET", "/slow", requestThread);
+
+        watchdog.watch(trace);
+
+        // the threshold and sample intervals span more than one turn of the 8-bucket wheel
+        assertThat(awaitSamples(trace, 3)).isTrue();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(trace.getSamples()).hasSize(3);
+        assertThat(trace.getSamples().get(0)).startsWith("+").contains(" at ");
+    }
+
+    @Test
+    void skipsRequestsCompletedBeforeThreshold() throws InterruptedException {
+        RequestTrace trace = new RequestTrace("GET", "/fast", requestThread);
+
+        watchdog.watch(trace);
+        trace.markEnd();
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        assertThat(trace.getSamples()).isEmpty();
+    }
+
+    @Test
+    void stopsSamplingOnceCompleted() throws InterruptedException {
+        RequestTrace trace = new RequestTrace("GET", "/slow", requestThread);
+
+        watchdog.watch(trace);
+        assertThat(awaitSamples(trace, 1)).isTrue();
+        trace.markEnd();
+        int samples = trace.getSamples().size();
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertThat(trace.getSamples()).hasSize(samples);
+    }
+
+    private static boolean awaitSamples(RequestTrace trace, int count)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (trace.getSamples().size() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        return true;
+    }
+}
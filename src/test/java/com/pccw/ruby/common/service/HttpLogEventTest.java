@@ -0,0 +1,46 @@
+package com.pccw.ruby.common.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpLogEventTest {
+
+    @Test
+    void writesHeadersAndParameters() throws IOException {
+        HttpLogEvent event = HttpLogEvent.request("GET", "/api/items");
+        event.addHeader("accept", "application/json");
+        event.addParameter("page", "1");
+
+        assertThat(write(event))
+                .isEqualTo(
+                        "{\"method\":\"GET\",\"path\":\"/api/items\","
+                                + "\"headers\":{\"accept\":\"application/json\"},"
+                                + "\"parameters\":{\"page\":\"1\"}}");
+    }
+
+    @Test
+    void skipsEmptyHeadersAndParameters() throws IOException {
+        HttpLogEvent event = HttpLogEvent.response("GET", "/api/items", 200, 5);
+
+        assertThat(write(event))
+                .isEqualTo(
+                        "{\"method\":\"GET\",\"path\":\"/api/items\","
+                                + "\"status\":200,\"durationMs\":5}");
+    }
+
+    private static String write(HttpLogEvent event) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            event.writeTo(generator);
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.pccw.ruby.common.service;
+
+import com.pccw.ruby.common.enums.LoggingMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoggingPolicyRegistryTest {
+
+    private static final LoggingPolicy OFF = new LoggingPolicy(LoggingMode.OFF, 1.0, -1);
+
+    private static final LoggingPolicy METADATA =
+            new LoggingPolicy(LoggingMode.METADATA, 1.0, -1);
+
+    private static final LoggingPolicy BODY = new LoggingPolicy(LoggingMode.BODY, 1.0, 512);
+
+    private final LoggingPolicyRegistry registry =
+            new LoggingPolicyRegistry(Collections.singletonMap("/api/**", METADATA));
+
+    @Test
+    void newPatternsAreMatchedAfterExistingOnes() {
+        registry.putPolicy("/api/orders/**", BODY);
+
+        assertThat(registry.getPolicies().keySet()).containsExactly("/api/**", "/api/orders/**");
+        assertThat(registry.resolve("/api/orders/1")).isEqualTo(METADATA);
+    }
+
+    @Test
+    void replacedPatternsKeepTheirPosition() {
+        registry.putPolicy("/public/**", OFF);
+        registry.putPolicy("/api/**", BODY);
+
+        assertThat(registry.getPolicies().keySet()).containsExactly("/api/**", "/public/**");
+        assertThat(registry.resolve("/api/items")).isEqualTo(BODY);
+    }
+
+    @Test
+    void updatesAreVisibleToMemoizedPaths() {
+        assertThat(registry.resolve("/api/items")).isEqualTo(METADATA);
+
+        registry.putPolicy("/api/**", OFF);
+        assertThat(registry.resolve("/api/items")).isEqualTo(OFF);
+
+        registry.removePolicy("/api/**");
+        assertThat(registry.resolve("/api/items")).isEqualTo(LoggingPolicy.DEFAULT);
+        assertThat(registry.getPolicies()).isEmpty();
+    }
+}
@@ -0,0 +1,81 @@
+package com.pccw.ruby.common.service;
+
+import com.pccw.ruby.common.enums.LoggingMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoggingPolicyTableTest {
+
+    private static final LoggingPolicy OFF = new LoggingPolicy(LoggingMode.OFF, 1.0, -1);
+
+    private static final LoggingPolicy METADATA =
+            new LoggingPolicy(LoggingMode.METADATA, 1.0, -1);
+
+    private static final LoggingPolicy BODY = new LoggingPolicy(LoggingMode.BODY, 1.0, 512);
+
+    @Test
+    void exactPathWinsOverEarlierPattern() {
+        Map<String, LoggingPolicy> definitions = new LinkedHashMap<>();
+        definitions.put("/api/**", METADATA);
+        definitions.put("/api/orders", BODY);
+        LoggingPolicyTable table = LoggingPolicyTable.compile(definitions, LoggingPolicy.DEFAULT);
+
+        assertThat(table.lookup("/api/orders")).isEqualTo(BODY);
+        assertThat(table.lookup("/api/orders/1")).isEqualTo(METADATA);
+    }
+
+    @Test
+    void firstMatchingPatternWins() {
+        Map<String, LoggingPolicy> definitions = new LinkedHashMap<>();
+        definitions.put("/api/health/**", OFF);
+        definitions.put("/api/**", METADATA);
+        definitions.put("/api/health/deep", BODY);
+        LoggingPolicyTable table = LoggingPolicyTable.compile(definitions, LoggingPolicy.DEFAULT);
+
+        assertThat(table.lookup("/api/health/live")).isEqualTo(OFF);
+        assertThat(table.lookup("/api/items")).isEqualTo(METADATA);
+        assertThat(table.lookup("/api/health/deep")).isEqualTo(BODY);
+    }
+
+    @Test
+    void fallsBackToDefaultPolicy() {
+        Map<String, LoggingPolicy> definitions = new LinkedHashMap<>();
+        definitions.put("/api/**", METADATA);
+        LoggingPolicyTable table = LoggingPolicyTable.compile(definitions, BODY);
+
+        assertThat(table.lookup("/other")).isEqualTo(BODY);
+        // memoized lookups give the same answer
+        assertThat(table.lookup("/other")).isEqualTo(BODY);
+        assertThat(table.lookup("/api/items")).isEqualTo(METADATA);
+        assertThat(table.lookup("/api/items")).isEqualTo(METADATA);
+    }
+
+    @Test
+    void keepsDefinitionOrder() {
+        Map<String, LoggingPolicy> definitions = new LinkedHashMap<>();
+        definitions.put("/b", OFF);
+        definitions.put("/a/**", METADATA);
+        definitions.put("/c", BODY);
+
+        LoggingPolicyTable table = LoggingPolicyTable.compile(definitions, LoggingPolicy.DEFAULT);
+
+        assertThat(table.getDefinitions().keySet()).containsExactly("/b", "/a/**", "/c");
+    }
+
+    @Test
+    void keepsResolvingPathsBeyondMemoSize() {
+        Map<String, LoggingPolicy> definitions = new LinkedHashMap<>();
+        definitions.put("/api/orders/*", BODY);
+        LoggingPolicyTable table = LoggingPolicyTable.compile(definitions, LoggingPolicy.DEFAULT);
+
+        for (int i = 0; i < 5000; i++) {
+            assertThat(table.lookup("/api/orders/" + i)).isEqualTo(BODY);
+            assertThat(table.lookup("/other/" + i)).isEqualTo(LoggingPolicy.DEFAULT);
+        }
+        assertThat(table.lookup("/api/orders/0")).isEqualTo(BODY);
+    }
+}
@@ -0,0 +1,137 @@
+package com.pccw.ruby.common.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the bytes allocated per request by REQUEST and RESPONSE logging, encoded to JSON by a
+ * synchronous {@link LogstashEncoder} appender, with and without direct encoding. Tagged as a
+ * benchmark, so it only runs with the {@code benchmark} Maven profile.
+ */
+@Tag("benchmark")
+class LoggingServiceAllocationTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+
+    private static final int ITERATIONS = 20_000;
+
+    /** Direct encoding allocates about two thirds of the map, leaving headroom for JDK noise. */
+    private static final double MAX_DIRECT_TO_MAP_RATIO = 0.85;
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(LoggingService.class);
+
+    private OutputStreamAppender<ILoggingEvent> appender;
+
+    private Level previousLevel;
+
+    private boolean previousAdditive;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = logger.getLoggerContext();
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        previousLevel = logger.getLevel();
+        previousAdditive = logger.isAdditive();
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(previousLevel);
+        logger.setAdditive(previousAdditive);
+        appender.stop();
+    }
+
+    @Test
+    void directEncodingAllocatesLessPerRequest() {
+        com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+        assumeTrue(threadMXBean != null, "Thread allocation counters are not supported");
+
+        long mapBytes = bytesPerRequest(threadMXBean, new LoggingService());
+        LoggingService directService = new LoggingService();
+        directService.setDirectEncoding(true);
+        long directBytes = bytesPerRequest(threadMXBean, directService);
+
+        assertThat((double) directBytes / mapBytes)
+                .as("direct/map bytes per request, map %d, direct %d", mapBytes, directBytes)
+                .isLessThanOrEqualTo(MAX_DIRECT_TO_MAP_RATIO);
+    }
+
+    private static long bytesPerRequest(
+            com.sun.management.ThreadMXBean threadMXBean, LoggingService loggingService) {
+        ContentCachingRequestWrapper request = new ContentCachingRequestWrapper(buildRequest());
+        request.setAttribute(LoggingService.START_NANOS_ATTRIBUTE, System.nanoTime());
+        MockHttpServletResponse rawResponse = new MockHttpServletResponse();
+        rawResponse.setHeader("User-Agent", "load-test");
+        ContentCachingResponseWrapper response = new ContentCachingResponseWrapper(rawResponse);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            logOnce(loggingService, request, response);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            logOnce(loggingService, request, response);
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private static void logOnce(
+            LoggingService loggingService,
+            ContentCachingRequestWrapper request,
+            ContentCachingResponseWrapper response) {
+        loggingService.logRequest(request);
+        loggingService.logResponse(request, response);
+    }
+
+    private static MockHttpServletRequest buildRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/items");
+        request.addHeader("User-Agent", "load-test");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Authorization", "Bearer token");
+        request.addHeader("X-Request-Id", "0123456789");
+        request.addParameter("page", "1");
+        request.addParameter("size", "20");
+        return request;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean)
+                        .isThreadAllocatedMemorySupported()) {
+            return (com.sun.management.ThreadMXBean) threadMXBean;
+        }
+        return null;
+    }
+}
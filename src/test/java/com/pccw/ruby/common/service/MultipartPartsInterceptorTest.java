@@ -0,0 +1,80 @@
+package com.pccw.ruby.common.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.web.multipart.support.StandardMultipartHttpServletRequest;
+
+import javax.servlet.http.Part;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MultipartPartsInterceptorTest {
+
+    private final MultipartPartsInterceptor interceptor =
+            new MultipartPartsInterceptor(new LoggingService());
+
+    @Test
+    void recordsPartSizesBeforePartsAreDeleted() throws Exception {
+        MockHttpServletRequest request = multipartRequest();
+        request.addPart(new DeletablePart("file", "a.bin", new byte[5000]));
+
+        interceptor.afterCompletion(
+                new StandardMultipartHttpServletRequest(request),
+                new MockHttpServletResponse(),
+                new Object(),
+                null);
+        for (Part part : request.getParts()) {
+            part.delete();
+        }
+
+        assertThat(request.getAttribute(LoggingService.MULTIPART_PARTS_ATTRIBUTE))
+                .isEqualTo("[name=file, filename=a.bin, size=5000]");
+        assertThat(request.getPart("file").getSize()).isZero();
+    }
+
+    @Test
+    void doesNotParseUnresolvedRequests() throws Exception {
+        MockHttpServletRequest request =
+                new MockHttpServletRequest() {
+                    @Override
+                    public Collection<Part> getParts() {
+                        throw new AssertionError("the upload must not be read");
+                    }
+                };
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=XyZ");
+
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), new Object(), null);
+
+        assertThat(request.getAttribute(LoggingService.MULTIPART_PARTS_ATTRIBUTE)).isNull();
+    }
+
+    private static MockHttpServletRequest multipartRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/uploads");
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=XyZ");
+        return request;
+    }
+
+    /** Part reporting a size of 0 once deleted, like the container's disk-backed parts. */
+    static final class DeletablePart extends MockPart {
+
+        private boolean deleted;
+
+        DeletablePart(String name, String filename, byte[] content) {
+            super(name, filename, content);
+        }
+
+        @Override
+        public long getSize() {
+            return deleted ? 0 : super.getSize();
+        }
+
+        @Override
+        public void delete() {
+            deleted = true;
+        }
+    }
+}
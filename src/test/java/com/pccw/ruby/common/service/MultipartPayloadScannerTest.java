@@ -0,0 +1,136 @@
+package com.pccw.ruby.common.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockPart;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MultipartPayloadScannerTest {
+
+    private static final MediaType MEDIA_TYPE =
+            MediaType.parseMediaType("multipart/form-data; boundary=XyZ");
+
+    private final MultipartPayloadScanner scanner =
+            new MultipartPayloadScanner(
+                    Arrays.asList(MediaType.valueOf("text/*"), MediaType.APPLICATION_JSON), 8);
+
+    @Test
+    void describesTextAndFileParts() {
+        String body =
+                "--XyZ\r\n"
+                        + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                        + "hello\r\n"
+                        + "--XyZ\r\n"
+                        + "Content-Disposition: form-data; name=\"file\"; filename=\"a.bin\"\r\n"
+                        + "Content-Type: application/octet-stream\r\n\r\n"
+                        + "0123456789\r\n"
+                        + "--XyZ--\r\n";
+
+        assertThat(scan(body))
+                .isEqualTo(
+                        "[name=title, size=5, value=hello], "
+                                + "[name=file, filename=a.bin, "
+                                + "contentType=application/octet-stream, size=10]");
+    }
+
+    @Test
+    void ignoresBoundaryNotPrecededByLineBreak() {
+        String body =
+                "--XyZ\r\n"
+                        + "Content-Disposition: form-data; name=\"text\"\r\n\r\n"
+                        + "a--XyZb\r\n"
+                        + "--XyZ--\r\n";
+
+        assertThat(scan(body)).isEqualTo("[name=text, size=7, value=a--XyZb]");
+    }
+
+    @Test
+    void skipsPreamble() {
+        String body =
+                "preamble\r\n"
+                        + "--XyZ\r\n"
+                        + "Content-Disposition: form-data; name=\"a\"\r\n\r\n"
+                        + "1\r\n"
+                        + "--XyZ--";
+
+        assertThat(scan(body)).isEqualTo("[name=a, size=1, value=1]");
+    }
+
+    @Test
+    void truncatesLongTextValues() {
+        String body =
+                "--XyZ\r\n"
+                        + "Content-Disposition: form-data; name=\"long\"\r\n\r\n"
+                        + "abcdefghijkl\r\n"
+                        + "--XyZ--";
+
+        assertThat(scan(body)).isEqualTo("[name=long, size=12, value=abcdefgh...]");
+    }
+
+    @Test
+    void marksPartCutOffByCacheLimit() {
+        String body =
+                "--XyZ\r\n"
+                        + "Content-Disposition: form-data; name=\"file\"; filename=\"a.bin\"\r\n\r\n"
+                        + "0123";
+
+        assertThat(scan(body)).isEqualTo("[name=file, filename=a.bin, size=4, truncated=true]");
+    }
+
+    @Test
+    void unquotesBoundary() {
+        String body =
+                "--a b\r\n"
+                        + "Content-Disposition: form-data; name=\"a\"\r\n\r\n"
+                        + "1\r\n"
+                        + "--a b--";
+
+        String description =
+                scanner.scan(
+                        body.getBytes(StandardCharsets.ISO_8859_1),
+                        MediaType.parseMediaType("multipart/form-data; boundary=\"a b\""),
+                        StandardCharsets.UTF_8);
+
+        assertThat(description).isEqualTo("[name=a, size=1, value=1]");
+    }
+
+    @Test
+    void returnsEmptyWithoutBoundary() {
+        assertThat(
+                        scanner.scan(
+                                new byte[0],
+                                MediaType.MULTIPART_FORM_DATA,
+                                StandardCharsets.UTF_8))
+                .isEmpty();
+    }
+
+    @Test
+    void describesPartsParsedByContainer() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addPart(new MockPart("title", "hello world".getBytes(StandardCharsets.UTF_8)));
+        MockPart file = new MockPart("file", "a.png", new byte[1000]);
+        file.getHeaders().setContentType(MediaType.IMAGE_PNG);
+        request.addPart(file);
+        request.addParameter("title", "hello world");
+
+        assertThat(scanner.describeParts(request))
+                .isEqualTo(
+                        "[name=title, size=11, value=hello wo...], "
+                                + "[name=file, filename=a.png, contentType=image/png, size=1000]");
+    }
+
+    @Test
+    void returnsNullWithoutParsedParts() {
+        assertThat(scanner.describeParts(new MockHttpServletRequest())).isNull();
+    }
+
+    private String scan(String body) {
+        return scanner.scan(
+                body.getBytes(StandardCharsets.ISO_8859_1), MEDIA_TYPE, StandardCharsets.UTF_8);
+    }
+}
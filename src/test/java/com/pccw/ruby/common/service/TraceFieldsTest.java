@@ -0,0 +1,84 @@
+package com.pccw.ruby.common.service;
+
+import brave.ScopedSpan;
+import brave.Tracing;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceFieldsTest {
+
+    private Tracing tracing;
+
+    @BeforeEach
+    void setUp() {
+        tracing = Tracing.newBuilder().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        tracing.close();
+    }
+
+    @Test
+    void writesIdsOfCurrentSpan() throws IOException {
+        ScopedSpan span = tracing.tracer().startScopedSpan("test");
+        try {
+            assertThat(write(TraceFields.current()))
+                    .isEqualTo(
+                            "{\"traceId\":\""
+                                    + span.context().traceIdString()
+                                    + "\",\"spanId\":\""
+                                    + span.context().spanIdString()
+                                    + "\"}");
+        } finally {
+            span.finish();
+        }
+    }
+
+    @Test
+    void writesNothingWithoutSpan() throws IOException {
+        assertThat(write(TraceFields.current())).isEqualTo("{}");
+    }
+
+    @Test
+    void leavesIdsToMdcWhenCorrelated() throws IOException {
+        ScopedSpan span = tracing.tracer().startScopedSpan("test");
+        try {
+            MDC.put(TraceFields.TRACE_ID, span.context().traceIdString());
+
+            assertThat(write(TraceFields.current())).isEqualTo("{}");
+        } finally {
+            span.finish();
+        }
+    }
+
+    @Test
+    void disabledFieldsWriteNothing() throws IOException {
+        ScopedSpan span = tracing.tracer().startScopedSpan("test");
+        try {
+            assertThat(write(TraceFields.none())).isEqualTo("{}");
+        } finally {
+            span.finish();
+        }
+    }
+
+    private static String write(TraceFields fields) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            fields.writeTo(generator);
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+}
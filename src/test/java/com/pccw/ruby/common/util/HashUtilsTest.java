@@ -0,0 +1,43 @@
+package com.pccw.ruby.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashUtilsTest {
+
+    @Test
+    void matchesReferenceVectors() {
+        assertThat(HashUtils.fnv1a64(bytes(""))).isEqualTo(0xcbf29ce484222325L);
+        assertThat(HashUtils.fnv1a64(bytes("a"))).isEqualTo(0xaf63dc4c8601ec8cL);
+        assertThat(HashUtils.fnv1a64(bytes("foobar"))).isEqualTo(0x85944171f73967e8L);
+    }
+
+    @Test
+    void hashesHighBytesAsUnsigned() {
+        assertThat(HashUtils.fnv1a64(new byte[] {(byte) 0xff}))
+                .isNotEqualTo(HashUtils.fnv1a64(new byte[] {(byte) 0x7f}))
+                .isEqualTo(0xaf64724c8602eb6eL);
+    }
+
+    @Test
+    void streamHashEqualsArrayHashAcrossBufferBoundaries() throws IOException {
+        byte[] content = new byte[10_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+
+        assertThat(HashUtils.fnv1a64(new ByteArrayInputStream(content)))
+                .isEqualTo(HashUtils.fnv1a64(content));
+        assertThat(HashUtils.fnv1a64(new ByteArrayInputStream(new byte[0])))
+                .isEqualTo(HashUtils.fnv1a64(new byte[0]));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}